@@ -0,0 +1,23 @@
+package java8.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkRunner {
+	// Entry point of target/benchmarks.jar. Same command line as the JMH main
+	// (a regexp selects the benchmarks, -p size=1048576 fixes a parameter...),
+	// but the gc profiler is always added, so the allocation rate (gc.alloc.rate.norm,
+	// bytes allocated per operation) is reported next to the throughput.
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
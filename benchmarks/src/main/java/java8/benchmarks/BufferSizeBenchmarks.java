@@ -0,0 +1,74 @@
+package java8.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Same loop as IO.copyBufferedStream(), with the buffer size and the flush() per chunk as parameters,
+// to see how much each one costs. bufferSize=1024 and flushEveryChunk=true is copyBufferedStream().
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BufferSizeBenchmarks {
+
+	@Param({ "1048576", "67108864" })
+	public long size;
+
+	@Param({ "1024", "8192", "65536", "1048576" })
+	public int bufferSize;
+
+	@Param({ "true", "false" })
+	public boolean flushEveryChunk;
+
+	private File source;
+	private File destination;
+
+	@Setup
+	public void createFiles() throws IOException {
+		source = TestFiles.binary(size);
+		destination = TestFiles.empty();
+	}
+
+	@TearDown
+	public void deleteFiles() {
+		source.delete();
+		destination.delete();
+	}
+
+	@Benchmark
+	public void copyBufferedStream() throws IOException {
+		try (InputStream in = new BufferedInputStream(new FileInputStream(source), bufferSize);
+				OutputStream out = new BufferedOutputStream(new FileOutputStream(destination), bufferSize)) {
+			byte[] buffer = new byte[bufferSize];
+			int lengthRead;
+			while ((lengthRead = in.read(buffer)) > 0) {
+				out.write(buffer, 0, lengthRead);
+				if (flushEveryChunk) {
+					out.flush();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package java8.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java8.OCP.C8_IO.IO;
+
+// Every copy strategy of C8_IO and C9_NIO_2 on the same source file.
+// Throughput is in copies per second: multiply by size to get bytes per second.
+// copyStream() does a read() and a write() per byte: expect it to be very slow on the biggest size.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CopyBenchmarks {
+
+	@Param({ "4096", "1048576", "67108864" })
+	public long size;
+
+	private File source;
+	private File destination;
+
+	@Setup
+	public void createFiles() throws IOException {
+		source = TestFiles.binary(size);
+		destination = TestFiles.empty();
+	}
+
+	@TearDown
+	public void deleteFiles() {
+		source.delete();
+		destination.delete();
+	}
+
+	@Benchmark
+	public void copyStream() throws IOException {
+		IO.copyStream(source, destination);
+	}
+
+	@Benchmark
+	public void copyBufferedStream() throws IOException {
+		IO.copyBufferedStream(source, destination);
+	}
+
+	@Benchmark
+	public IO.CopyStats copyAdaptiveBufferedStream() throws IOException {
+		return IO.copyAdaptiveBufferedStream(source, destination);
+	}
+
+	@Benchmark
+	public IO.CopyStats copyChannel() throws IOException {
+		return IO.copyChannel(source, destination);
+	}
+
+	@Benchmark
+	public IO.CopyStats copyMapped() throws IOException {
+		return IO.copyMapped(source, destination);
+	}
+
+	@Benchmark
+	public void filesCopy() throws IOException {
+		Files.copy(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+}
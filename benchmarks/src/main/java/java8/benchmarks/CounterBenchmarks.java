@@ -0,0 +1,105 @@
+package java8.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java8.OCP.C7_Concurrency.StripedCounter;
+
+// One counter shared by all the threads: the six increments of SynchronizingDataAccess.SheepManager
+// against StripedCounter (and LongAdder, the one of the JDK).
+// The SheepManager methods are private and print every number, so the printing would be measured:
+// the same six increments are repeated here without it.
+// The number of threads is not a parameter in JMH: main() runs the benchmarks with 1, 2, 4... 64 threads.
+//    java -cp target/benchmarks.jar java8.benchmarks.CounterBenchmarks
+// or one thread count with the usual runner: java -jar target/benchmarks.jar CounterBenchmarks -t 16
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CounterBenchmarks {
+
+	static final int[] THREADS = { 1, 2, 4, 8, 16, 32, 64 };
+
+	private int sheepCount1;
+	private int sheepCount2;
+	private int sheepCount3;
+	private final AtomicInteger atomicSheepCount1 = new AtomicInteger();
+	private final AtomicInteger atomicSheepCount2 = new AtomicInteger();
+	private final AtomicInteger atomicSheepCount3 = new AtomicInteger();
+	private final StripedCounter striped = new StripedCounter();
+	private final LongAdder adder = new LongAdder();
+
+	@Benchmark
+	public int increment() {
+		// not thread-safe: increments are lost
+		return ++sheepCount1;
+	}
+
+	@Benchmark
+	public int incSyncBlock() {
+		synchronized (this) {
+			return ++sheepCount2;
+		}
+	}
+
+	@Benchmark
+	public synchronized int incSyncMethod() {
+		return ++sheepCount3;
+	}
+
+	@Benchmark
+	public int atomicIncrement() {
+		return atomicSheepCount1.incrementAndGet();
+	}
+
+	@Benchmark
+	public int atomicIncrementSyncBlock() {
+		synchronized (this) {
+			return atomicSheepCount2.incrementAndGet();
+		}
+	}
+
+	@Benchmark
+	public synchronized int atomicIncrementSyncMethod() {
+		return atomicSheepCount3.incrementAndGet();
+	}
+
+	@Benchmark
+	public void stripedIncrement() {
+		striped.increment();
+	}
+
+	@Benchmark
+	public void longAdderIncrement() {
+		adder.increment();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		for (int threads : THREADS) {
+			Options options = new OptionsBuilder()
+					.include(CounterBenchmarks.class.getSimpleName())
+					.threads(threads)
+					.addProfiler(GCProfiler.class)
+					.build();
+			new Runner(options).run();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package java8.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java8.OCP.C9_NIO_2.AsciiFastReader;
+
+// Decoding ASCII-heavy logs: Files.newBufferedReader() against AsciiFastReader.newBufferedReader().
+// Every benchmark reads the lines with readLine() and returns the number of chars.
+//    ascii: a pure ASCII log read as US-ASCII and as UTF-8,
+//    mixed: a UTF-8 log with a non-ASCII line in 10, where AsciiFastReader also uses the decoder.
+// Run it on Java 8: from Java 17 on the decoders of the JDK have an intrinsic ASCII fast path.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodeBenchmarks {
+
+	@Param({ "1048576", "67108864" })
+	public long size;
+
+	private File ascii;
+	private File mixed;
+
+	@Setup
+	public void createFiles() throws IOException {
+		ascii = TestFiles.text(size);
+		mixed = TestFiles.utf8Text(size);
+	}
+
+	@TearDown
+	public void deleteFiles() {
+		ascii.delete();
+		mixed.delete();
+	}
+
+	@Benchmark
+	public long filesAscii() throws IOException {
+		return chars(Files.newBufferedReader(ascii.toPath(), StandardCharsets.US_ASCII));
+	}
+
+	@Benchmark
+	public long fastAscii() throws IOException {
+		return chars(fast(ascii, StandardCharsets.US_ASCII));
+	}
+
+	@Benchmark
+	public long filesAsciiAsUtf8() throws IOException {
+		return chars(Files.newBufferedReader(ascii.toPath(), StandardCharsets.UTF_8));
+	}
+
+	@Benchmark
+	public long fastAsciiAsUtf8() throws IOException {
+		return chars(fast(ascii, StandardCharsets.UTF_8));
+	}
+
+	@Benchmark
+	public long filesMixed() throws IOException {
+		return chars(Files.newBufferedReader(mixed.toPath(), StandardCharsets.UTF_8));
+	}
+
+	@Benchmark
+	public long fastMixed() throws IOException {
+		return chars(fast(mixed, StandardCharsets.UTF_8));
+	}
+
+	private static BufferedReader fast(File file, Charset charset) throws IOException {
+		// the reader itself: newBufferedReader() returns the one of Files on Java 17+
+		return new BufferedReader(new AsciiFastReader(new FileInputStream(file), charset));
+	}
+
+	private static long chars(BufferedReader reader) throws IOException {
+		long chars = 0;
+		try (BufferedReader in = reader) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				chars += line.length();
+			}
+		}
+		return chars;
+	}
+}
@@ -0,0 +1,85 @@
+package java8.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java8.OCP.C8_IO.IO;
+import java8.OCP.C9_NIO_2.ChunkedLineReader;
+
+// Reading all the lines of a text file. Every benchmark returns the number of lines,
+// the streams count them without keeping them (look at the allocation rate).
+// Same charset for all of them, readFile() uses the default one.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dfile.encoding=UTF-8")
+public class ReadBenchmarks {
+
+	@Param({ "4096", "1048576", "67108864" })
+	public long size;
+
+	private File source;
+
+	@Setup
+	public void createFile() throws IOException {
+		source = TestFiles.text(size);
+	}
+
+	@TearDown
+	public void deleteFile() {
+		source.delete();
+	}
+
+	@Benchmark
+	public int readFile() throws IOException {
+		return IO.readFile(source).size();
+	}
+
+	@Benchmark
+	public long ioLines() throws IOException {
+		try (Stream<String> lines = IO.lines(source)) {
+			return lines.count();
+		}
+	}
+
+	@Benchmark
+	public int filesReadAllLines() throws IOException {
+		List<String> lines = Files.readAllLines(source.toPath(), Charset.defaultCharset());
+		return lines.size();
+	}
+
+	@Benchmark
+	public long filesLines() throws IOException {
+		try (Stream<String> lines = Files.lines(source.toPath(), Charset.defaultCharset())) {
+			return lines.count();
+		}
+	}
+
+	@Benchmark
+	public long chunkedLines() throws IOException {
+		try (Stream<String> lines = ChunkedLineReader.lines(source.toPath(), Charset.defaultCharset(),
+				ChunkedLineReader.DEFAULT_CHUNK_SIZE)) {
+			return lines.count();
+		}
+	}
+}
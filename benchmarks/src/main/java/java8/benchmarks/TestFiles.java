@@ -0,0 +1,59 @@
+package java8.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+// Files used by the benchmarks. They are created once per trial in java.io.tmpdir.
+class TestFiles {
+
+	static File binary(long size) throws IOException {
+		File file = File.createTempFile("jmh", ".bin");
+		file.deleteOnExit();
+		byte[] chunk = new byte[(int) Math.min(size, 1024 * 1024)];
+		new Random(42).nextBytes(chunk);
+		try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+			for (long written = 0; written < size; written += chunk.length) {
+				out.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+			}
+		}
+		return file;
+	}
+
+	static File text(long size) throws IOException {
+		// log-like ASCII lines of about 80 chars
+		return text(size, false);
+	}
+
+	static File utf8Text(long size) throws IOException {
+		// the same log in UTF-8, with a user name that is not ASCII in one line of 10
+		return text(size, true);
+	}
+
+	private static File text(long size, boolean utf8) throws IOException {
+		File file = File.createTempFile("jmh", ".log");
+		file.deleteOnExit();
+		Random random = new Random(42);
+		long written = 0;
+		try (PrintWriter out = new PrintWriter(file, utf8 ? "UTF-8" : "US-ASCII")) {
+			for (long line = 0; written < size; line++) {
+				String s = (line % 10 == 0 ? "WARN " : "INFO ") + line + " request processed in "
+						+ random.nextInt(1000) + " ms by worker-" + random.nextInt(32) + " status=OK";
+				if (utf8 && line % 10 == 5) {
+					s += " user=Jos\u00e9 M\u00fcller";
+				}
+				out.println(s);
+				written += s.length() + 1;
+			}
+		}
+		return file;
+	}
+
+	static File empty() throws IOException {
+		File file = File.createTempFile("jmh", ".out");
+		file.deleteOnExit();
+		return file;
+	}
+}
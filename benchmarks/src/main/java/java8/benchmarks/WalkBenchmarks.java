@@ -0,0 +1,109 @@
+package java8.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java8.OCP.C9_NIO_2.ParallelFileWalker;
+
+// Total size of the regular files of a tree, the usual "walk, then ask the file system" pattern
+// against the walks that return the attributes they already read.
+// The tree has 'files' small files, 100 per directory, in root/a*/d*/.
+// The JVM cannot count its own system calls: run the benchmark under strace to get them, e.g.
+//    strace -f -c -e trace=%stat,getdents64 java -jar target/benchmarks.jar WalkBenchmarks -f 1 -wi 0 -i 1
+// walkThenReadAttributes does one more stat per path than the others.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WalkBenchmarks {
+
+	@Param({ "10000", "100000" })
+	public int files;
+
+	private Path root;
+
+	@Setup
+	public void createTree() throws IOException {
+		root = Files.createTempDirectory("jmh-tree");
+		Path directory = root;
+		for (int i = 0; i < files; i++) {
+			if (i % 100 == 0) {
+				int n = i / 100;
+				directory = root.resolve("a" + (n / 10)).resolve("d" + n);
+				Files.createDirectories(directory);
+			}
+			Files.write(directory.resolve("f" + i), new byte[i % 64]);
+		}
+	}
+
+	@TearDown
+	public void deleteTree() throws IOException {
+		try (Stream<Path> paths = Files.walk(root)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public long walkThenReadAttributes() throws IOException {
+		try (Stream<Path> paths = Files.walk(root)) {
+			return paths.mapToLong(p -> {
+				try {
+					BasicFileAttributes attributes = Files.readAttributes(p, BasicFileAttributes.class);
+					return attributes.isRegularFile() ? attributes.size() : 0;
+				} catch (IOException e) {
+					return 0;
+				}
+			}).sum();
+		}
+	}
+
+	@Benchmark
+	public long filesFind() throws IOException {
+		// the BiPredicate receives the attributes, but the stream only returns the paths
+		long[] total = new long[1];
+		try (Stream<Path> paths = Files.find(root, Integer.MAX_VALUE, (p, a) -> {
+			if (a.isRegularFile()) {
+				total[0] += a.size();
+			}
+			return false;
+		})) {
+			paths.count();
+		}
+		return total[0];
+	}
+
+	@Benchmark
+	public long walkWithAttributes() throws IOException {
+		try (Stream<ParallelFileWalker.Entry> entries = ParallelFileWalker.walkWithAttributes(root)) {
+			return entries.mapToLong(e -> e.getAttributes().isRegularFile() ? e.getAttributes().size() : 0).sum();
+		}
+	}
+
+	@Benchmark
+	public long walkWithAttributesSequential() throws IOException {
+		try (Stream<ParallelFileWalker.Entry> entries = ParallelFileWalker.walkWithAttributes(root)) {
+			return entries.sequential()
+					.mapToLong(e -> e.getAttributes().isRegularFile() ? e.getAttributes().size() : 0).sum();
+		}
+	}
+}
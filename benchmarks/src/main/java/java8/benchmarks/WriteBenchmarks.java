@@ -0,0 +1,72 @@
+package java8.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java8.OCP.C8_IO.AsyncFileWriter;
+import java8.OCP.C8_IO.IO;
+
+// Writing the same list of lines to a file.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dfile.encoding=UTF-8")
+public class WriteBenchmarks {
+
+	@Param({ "100", "10000", "1000000" })
+	public int lines;
+
+	private List<String> data;
+	private File destination;
+
+	@Setup
+	public void createData() throws IOException {
+		data = new ArrayList<>(lines);
+		for (int i = 0; i < lines; i++) {
+			data.add("INFO " + i + " request processed in " + (i % 1000) + " ms by worker-" + (i % 32) + " status=OK");
+		}
+		destination = TestFiles.empty();
+	}
+
+	@TearDown
+	public void deleteFile() {
+		destination.delete();
+	}
+
+	@Benchmark
+	public void writeFile() throws IOException {
+		IO.writeFile(data, destination);
+	}
+
+	@Benchmark
+	public void asyncFileWriter() throws IOException {
+		try (AsyncFileWriter writer = new AsyncFileWriter(destination)) {
+			writer.writeLines(data);
+		}
+	}
+
+	@Benchmark
+	public void filesWrite() throws IOException {
+		Files.write(destination.toPath(), data, Charset.defaultCharset());
+	}
+}
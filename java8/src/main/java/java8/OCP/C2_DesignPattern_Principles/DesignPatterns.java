@@ -1,12 +1,15 @@
 package java8.OCP.C2_DesignPattern_Principles;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
 public class DesignPatterns {
 	
 	// Example of immutable class that accomplishes the 5 rules.
-	public final class Animal {
+	// static nested: an inner class would keep (and serialize) a reference to DesignPatterns.
+	public static final class Animal implements Serializable {
+		private static final long serialVersionUID = 1L;
 		private final String species;
 		private final int age;
 		private final List<String> favoriteFoods;
@@ -1,5 +1,6 @@
 package java8.OCP.C3_Generics_Collections;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -7,7 +8,8 @@ import java.util.List;
 
 public class Comparator_Comparable {
 
-	public static class Duck implements Comparable<Duck> {
+	public static class Duck implements Comparable<Duck>, Serializable {
+		private static final long serialVersionUID = 1L;
 		private String name;
 		private int id;
 
@@ -20,6 +22,10 @@ public class Comparator_Comparable {
 			return id;
 		}
 
+		public String getName() {
+			return name;
+		}
+
 		public String toString() { // use readable output
 			return name + " " + id;
 		}
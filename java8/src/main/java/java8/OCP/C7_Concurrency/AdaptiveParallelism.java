@@ -0,0 +1,133 @@
+package java8.OCP.C7_Concurrency;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+public class AdaptiveParallelism implements AutoCloseable {
+	// A parallel stream runs on ForkJoinPool.commonPool(), shared by every parallel stream of the JVM:
+	// a stage that blocks (processRecord() sleeps, like an I/O call) keeps its threads and the other
+	// parallel streams wait. This controller runs the pipelines on its own ForkJoinPool:
+	//    a terminal operation called inside a task of a ForkJoinPool runs on that pool, not the common one,
+	//    blocking(supplier) runs a blocking stage through ForkJoinPool.managedBlock(): while the worker is
+	//       blocked the pool may start a spare thread, so the other stages keep 'parallelism' threads running,
+	//    the parallelism is tuned from the throughput (items per second) of every run(), hill climbing:
+	//       it goes on in the same direction (doubling or halving) while the throughput improves by more
+	//       than IMPROVEMENT. When it does not, it goes back to the best parallelism and the next try is
+	//       in the other direction, so it keeps following a workload that changes. Between min and max.
+	// The parallelism of a ForkJoinPool is fixed when it is created (Java 8): a new value takes a new pool,
+	// used from the next run(). To tune a big job, run it in batches.
+	// Note: a parallel stream splits its source in about 4 * commonPool parallelism pieces, whatever the pool.
+	// Note: every worker blocked in managedBlock() may get a compensation thread, so the threads running
+	// blocking stages are not bounded by the tuned parallelism: it only controls them loosely.
+
+	static final double IMPROVEMENT = 1.05;
+
+	private final int min;
+	private final int max;
+	private ForkJoinPool pool;
+	private int parallelism;
+	private int direction = 1; // 1: doubling, -1: halving
+	private double bestThroughput;
+	private int bestParallelism;
+
+	public AdaptiveParallelism(int min, int max) {
+		if (min <= 0 || max < min) {
+			throw new IllegalArgumentException("0 < min <= max: " + min + ", " + max);
+		}
+		this.min = min;
+		this.max = max;
+		this.parallelism = Math.max(min, Math.min(max, Runtime.getRuntime().availableProcessors()));
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+	// Runs the pipeline on the pool. items: the number of elements it processes, for the throughput.
+	public <T> T run(long items, Supplier<T> pipeline) throws InterruptedException {
+		ForkJoinPool current;
+		synchronized (this) {
+			current = pool;
+		}
+		long start = System.nanoTime();
+		T result;
+		try {
+			result = current.submit(pipeline::get).get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+		tune(current, items * 1e9 / Math.max(1, System.nanoTime() - start));
+		return result;
+	}
+
+	public synchronized int getParallelism() {
+		return parallelism;
+	}
+
+	public static <T> T blocking(Supplier<T> stage) {
+		// Outside a ForkJoinPool worker managedBlock() just calls block()
+		Blocker<T> blocker = new Blocker<>(stage);
+		try {
+			ForkJoinPool.managedBlock(blocker);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted", e);
+		}
+		return blocker.result;
+	}
+
+	private static class Blocker<T> implements ForkJoinPool.ManagedBlocker {
+		private final Supplier<T> stage;
+		private T result;
+		private boolean done;
+
+		Blocker(Supplier<T> stage) {
+			this.stage = stage;
+		}
+
+		@Override
+		public boolean block() {
+			result = stage.get();
+			done = true;
+			return true;
+		}
+
+		@Override
+		public boolean isReleasable() {
+			return done;
+		}
+	}
+
+	private synchronized void tune(ForkJoinPool used, double throughput) {
+		if (used != pool) {
+			return; // measured on an old pool (concurrent runs)
+		}
+		int next;
+		if (throughput >= bestThroughput * IMPROVEMENT || parallelism == bestParallelism) {
+			// better, or the best one measured again (the work may have changed): keep it and try further
+			bestThroughput = throughput;
+			bestParallelism = parallelism;
+			next = direction > 0 ? Math.min(max, parallelism * 2) : Math.max(min, parallelism / 2);
+			if (next == parallelism) {
+				direction = -direction; // at a bound
+				return;
+			}
+		} else {
+			next = bestParallelism; // no better: back to the best one, the next try in the other direction
+			direction = -direction;
+		}
+		parallelism = next;
+		pool.shutdown(); // the runs already submitted finish
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	@Override
+	public synchronized void close() {
+		pool.shutdown();
+	}
+}
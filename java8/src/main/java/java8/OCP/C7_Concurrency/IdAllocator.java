@@ -0,0 +1,165 @@
+package java8.OCP.C7_Concurrency;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class IdAllocator {
+	// Unique ids for many threads. AtomicInteger.incrementAndGet() (SheepManager) is a CAS on the same
+	// counter for every id. Here every thread leases a block of ids with one CAS and then hands them out
+	// from its lease, a plain ThreadLocal object without atomics.
+	// The block size adapts to the contention on the shared counter, between minBlock and maxBlock:
+	//    the CAS of the lease failed (other threads leasing at the same time): the next block is doubled,
+	//    the last block lasted more than IDLE_NANOS (a slow thread): the next block is halved,
+	//    so a thread does not keep many ids that it will not use.
+	// The ids are unique, not ordered: every thread goes on with its own block. The rest of the block
+	// of a thread that ends is not used (a gap).
+	// Durable: with a high-water mark file, an id is only leased below the mark saved in the file.
+	// The mark is moved reserve ids forward at a time (written to a temporary file, forced to the disk
+	// and moved over the old one, then the directory is forced so the rename survives a power loss),
+	// and a restart goes on from the saved mark: an id is never repeated, at the price of a gap
+	// of at most reserve ids after a restart.
+
+	static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private static class Lease {
+		long next;
+		long end;
+		int blockSize;
+		long leased; // System.nanoTime() of the lease
+	}
+
+	private final AtomicLong counter;
+	private final int minBlock;
+	private final int maxBlock;
+	private final ThreadLocal<Lease> leases;
+	private final Path highWaterMark; // null: not durable
+	private final long reserve;
+	private volatile long limit = Long.MAX_VALUE; // ids below it can be leased
+
+	public IdAllocator() {
+		this(0, 16, 64 * 1024);
+	}
+
+	public IdAllocator(long first, int minBlock, int maxBlock) {
+		this(first, minBlock, maxBlock, null, 0);
+	}
+
+	// Durable allocator: starts after the ids that could have been leased before (the saved mark).
+	public IdAllocator(Path highWaterMark, long reserve, int minBlock, int maxBlock) throws IOException {
+		this(read(highWaterMark), minBlock, maxBlock, highWaterMark, reserve);
+		if (reserve <= 0) {
+			throw new IllegalArgumentException("reserve must be positive: " + reserve);
+		}
+		limit = counter.get();
+	}
+
+	private IdAllocator(long first, int minBlock, int maxBlock, Path highWaterMark, long reserve) {
+		if (minBlock <= 0 || maxBlock < minBlock) {
+			throw new IllegalArgumentException("0 < minBlock <= maxBlock: " + minBlock + ", " + maxBlock);
+		}
+		this.counter = new AtomicLong(first);
+		this.minBlock = minBlock;
+		this.maxBlock = maxBlock;
+		this.highWaterMark = highWaterMark;
+		this.reserve = reserve;
+		this.leases = ThreadLocal.withInitial(() -> {
+			Lease lease = new Lease();
+			lease.blockSize = minBlock;
+			return lease;
+		});
+	}
+
+	public long nextId() {
+		Lease lease = leases.get();
+		if (lease.next == lease.end) {
+			lease(lease);
+		}
+		return lease.next++;
+	}
+
+	private void lease(Lease lease) {
+		long now = System.nanoTime();
+		int size = lease.blockSize;
+		if (lease.leased != 0 && now - lease.leased > IDLE_NANOS) {
+			size = Math.max(minBlock, size >> 1);
+		}
+		for (;;) {
+			long start = counter.get();
+			long end = start + size;
+			if (end > limit) {
+				reserve(end);
+				continue;
+			}
+			if (counter.compareAndSet(start, end)) {
+				lease.next = start;
+				lease.end = end;
+				lease.blockSize = size;
+				lease.leased = now;
+				return;
+			}
+			size = Math.min(maxBlock, size << 1); // contention: bigger blocks, fewer leases
+		}
+	}
+
+	private synchronized void reserve(long end) {
+		// Saves the new mark before any id below it is leased
+		if (end <= limit) {
+			return; // moved by another thread
+		}
+		long mark = Math.max(end, limit + reserve);
+		try {
+			write(highWaterMark, mark);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		limit = mark;
+	}
+
+	// The next id to lease (the ids of the current leases are below it)
+	public long getHighWaterMark() {
+		return counter.get();
+	}
+
+	private static long read(Path file) throws IOException {
+		if (!Files.exists(file)) {
+			return 0;
+		}
+		return Long.parseLong(new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim());
+	}
+
+	private static void write(Path file, long mark) throws IOException {
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.wrap((mark + "\n").getBytes(StandardCharsets.US_ASCII));
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		// The rename is in the directory: without forcing it, a power loss can bring back the old mark
+		forceDirectory(file.toAbsolutePath().getParent());
+	}
+
+	private static void forceDirectory(Path directory) throws IOException {
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(directory, StandardOpenOption.READ);
+		} catch (IOException e) {
+			return; // a directory cannot be opened on Windows, where the move is already durable (MoveFileEx)
+		}
+		try (FileChannel dir = channel) {
+			dir.force(true);
+		}
+	}
+}
@@ -32,6 +32,23 @@ public class ParallelStreams {
 		return data.parallelStream().map(a -> processRecord(a)).count();
 	}
 
+	public long processAllDataAdaptive(List<Integer> data, AdaptiveParallelism controller)
+			throws InterruptedException {
+		// On the pool of the controller, in batches so it can tune the parallelism as it goes
+		long count = 0;
+		int batch = Math.max(1, data.size() / 10);
+		for (int from = 0; from < data.size(); from += batch) {
+			List<Integer> part = data.subList(from, Math.min(from + batch, data.size()));
+			count += controller.run(part.size(),
+					// sum(), not count(): from Java 9 count() of a SIZED stream skips the map()
+					() -> part.parallelStream().mapToLong(a -> {
+						AdaptiveParallelism.blocking(() -> processRecord(a));
+						return 1;
+					}).sum());
+		}
+		return count;
+	}
+
 	public static void main(String[] args) {
 		Supplier<Stream<Integer>> serialStreamIntegers = () -> Arrays.asList(1, 2, 3, 4, 5, 6).stream();
 		Supplier<Stream<Integer>> parallelStreamIntegers = () -> Arrays.asList(1, 2, 3, 4, 5, 6).parallelStream();
@@ -69,6 +86,15 @@ public class ParallelStreams {
 		System.out.println(calculator.processAllDataParallel(data));
 		time = (System.currentTimeMillis() - start)/1000.0;
 		System.out.println("\nTasks completed in parallel: "+time+" seconds");
+		// Process the data parallel on a dedicated pool, without blocking the common pool
+		try (AdaptiveParallelism controller = new AdaptiveParallelism(1, 64)) {
+			start = System.currentTimeMillis();
+			System.out.println(calculator.processAllDataAdaptive(data, controller));
+			time = (System.currentTimeMillis() - start)/1000.0;
+			System.out.println("\nTasks completed in adaptive parallel: "+time+" seconds, parallelism "
+					+ controller.getParallelism());
+		} catch (InterruptedException e) {
+		}
 		
 		// When using streams, you should avoid any lambda expressions that can produce side effects.
 		
@@ -0,0 +1,111 @@
+package java8.OCP.C7_Concurrency;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class StripedCounter {
+	// A counter for many threads incrementing at the same time, like java.util.concurrent.atomic.LongAdder.
+	// With a synchronized int or an AtomicInteger (SheepManager) every increment writes the same
+	// cache line: the threads wait for each other and the line moves from core to core.
+	// Here the count is split in cells:
+	//    without contention only base is incremented (a CAS, as cheap as an AtomicLong),
+	//    the first time a CAS on base fails the cells are created, one per processor, and from then on
+	//    every thread increments the cell of its probe (a per-thread hash). When the CAS on a cell fails
+	//    another thread is using it, so the thread moves to another cell for the next increments.
+	// Every cell is PAD longs apart in an AtomicLongArray (128 bytes, two cache lines, the adjacent line
+	// is prefetched with it): two cells are never in the same line (false sharing).
+	// The price: there is no count to read, sum() adds all the cells, and it is not a snapshot
+	// if other threads increment meanwhile. It cannot give every thread a unique number
+	// like incrementAndGet() does.
+
+	static final int PAD = 16;
+
+	private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(() -> new int[] { probe() });
+
+	private final AtomicLong base = new AtomicLong();
+	private final int cellCount;
+	private volatile AtomicLongArray cells; // null until there is contention
+
+	public StripedCounter() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		cellCount = processors == 1 ? 1 : Integer.highestOneBit(processors - 1) << 1; // a power of 2
+	}
+
+	public void increment() {
+		add(1);
+	}
+
+	public void add(long x) {
+		AtomicLongArray cs = cells;
+		if (cs == null) {
+			long b = base.get();
+			if (base.compareAndSet(b, b + x)) {
+				return;
+			}
+			cs = createCells();
+		}
+		int[] probe = PROBE.get();
+		int h = probe[0];
+		for (;;) {
+			int i = (h & (cellCount - 1)) * PAD;
+			long v = cs.get(i);
+			if (cs.compareAndSet(i, v, v + x)) {
+				probe[0] = h;
+				return;
+			}
+			h = next(h); // collision: another cell
+		}
+	}
+
+	public long sum() {
+		long sum = base.get();
+		AtomicLongArray cs = cells;
+		if (cs != null) {
+			for (int i = 0; i < cellCount; i++) {
+				sum += cs.get(i * PAD);
+			}
+		}
+		return sum;
+	}
+
+	// Every increment is counted once: in this sum or in the next one
+	public long sumThenReset() {
+		long sum = base.getAndSet(0);
+		AtomicLongArray cs = cells;
+		if (cs != null) {
+			for (int i = 0; i < cellCount; i++) {
+				sum += cs.getAndSet(i * PAD, 0);
+			}
+		}
+		return sum;
+	}
+
+	public void reset() {
+		sumThenReset();
+	}
+
+	public String toString() {
+		return Long.toString(sum());
+	}
+
+	private synchronized AtomicLongArray createCells() {
+		if (cells == null) {
+			cells = new AtomicLongArray(cellCount * PAD);
+		}
+		return cells;
+	}
+
+	private static int probe() {
+		// a different start for every thread, never 0 (xorshift)
+		long id = Thread.currentThread().getId();
+		int h = (int) (id * 0x9E3779B97F4A7C15L >>> 32);
+		return h == 0 ? 1 : h;
+	}
+
+	private static int next(int h) {
+		h ^= h << 13;
+		h ^= h >>> 17;
+		h ^= h << 5;
+		return h;
+	}
+}
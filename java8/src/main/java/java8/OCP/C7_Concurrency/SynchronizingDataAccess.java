@@ -45,6 +45,7 @@ public class SynchronizingDataAccess {
 	 */
 	// Synchronization is about protecting data integrity at the cost of performance.
 	// The better is using Concurrent collections
+	// For a counter incremented by many threads, StripedCounter (or LongAdder) splits the count in cells.
 		
 	public static class SheepManager {
 		private int sheepCount1 = 0;
@@ -53,6 +54,7 @@ public class SynchronizingDataAccess {
 		private AtomicInteger atomicSheepCount1 = new AtomicInteger();
 		private AtomicInteger atomicSheepCount2 = new AtomicInteger();
 		private AtomicInteger atomicSheepCount3 = new AtomicInteger();
+		private StripedCounter stripedSheepCount = new StripedCounter();
 
 		private void incrementAndReport() {
 			// disorder and some number can be repeated in the output
@@ -73,6 +75,7 @@ public class SynchronizingDataAccess {
 
 		private void atomicIncrementAndReport() {
 			// disorder and no repeated number in the output
+			// IdAllocator gives unique numbers with a CAS for a block of them, not for every one
 			System.out.print((atomicSheepCount1.incrementAndGet()) + " ");
 		}
 
@@ -87,6 +90,12 @@ public class SynchronizingDataAccess {
 		private synchronized void atomicIncrementAndReportSyncMethod() {
 			System.out.print((atomicSheepCount3.incrementAndGet()) + " ");
 		}
+
+		// striped counter: the threads do not wait for each other, but there is no number
+		// to report for each increment, only the sum at the end
+		private void stripedIncrement() {
+			stripedSheepCount.increment();
+		}
 	}
 
 	public static void main(String[] args) throws InterruptedException, ExecutionException {
@@ -130,8 +139,15 @@ public class SynchronizingDataAccess {
 			println.accept("atomicIncrementAndReportSyncMethod:");
 			for (int i = 0; i < 10; i++)
 				service.submit(() -> manager.atomicIncrementAndReportSyncMethod());
+			Thread.sleep(1000);
 			println.accept("");
 			
+			println.accept("stripedIncrement:");
+			for (int i = 0; i < 10; i++)
+				service.submit(() -> manager.stripedIncrement());
+			Thread.sleep(1000);
+			println.accept(manager.stripedSheepCount.sum() + "");
+			
 		} finally {
 			if (service != null)
 				service.shutdown();
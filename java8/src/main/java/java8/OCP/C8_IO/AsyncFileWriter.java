@@ -0,0 +1,198 @@
+package java8.OCP.C8_IO;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncFileWriter implements Closeable {
+	// Asynchronous alternative to IO.writeFile(): the caller only encodes the text into a buffer,
+	// and a background thread writes the full buffers to a FileChannel.
+	// Double buffering: while one buffer is being written to disk, the other one is being filled.
+	// If both buffers are full, write() blocks until one is drained (backpressure), so the memory
+	// used is always 2 buffers.
+	// flush() does not wait: it returns a future completed when everything written before it is
+	// in the file (handed to the OS, not forced to the device).
+	// Like BufferedWriter, malformed or unmappable characters are replaced, and a surrogate pair
+	// can be split between two write() calls: the encoder only ends the text in close().
+
+	public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+	private final FileChannel channel;
+	private final CharsetEncoder encoder;
+	private final ExecutorService drainer;
+	private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(2);
+	private ByteBuffer current;
+	private String pending = ""; // chars not encoded yet: a high surrogate
+	private volatile IOException failure;
+	private boolean closed;
+
+	public AsyncFileWriter(File destination) throws IOException {
+		this(destination, Charset.defaultCharset(), DEFAULT_BUFFER_SIZE);
+	}
+
+	public AsyncFileWriter(File destination, Charset charset, int bufferSize) throws IOException {
+		this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		// an empty buffer must hold any encoded char, or write() would never make progress
+		// (twice maxBytesPerChar: a surrogate pair is encoded at once)
+		int minimum = 2 * (int) Math.ceil(encoder.maxBytesPerChar());
+		if (bufferSize < minimum) {
+			throw new IllegalArgumentException("bufferSize must be at least " + minimum + ": " + bufferSize);
+		}
+		free.add(ByteBuffer.allocateDirect(bufferSize));
+		free.add(ByteBuffer.allocateDirect(bufferSize));
+		this.channel = FileChannel.open(destination.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		// a single thread keeps the buffers in order
+		this.drainer = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "async-file-writer");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	public synchronized void write(String s) throws IOException {
+		ensureOpen();
+		CharBuffer in = CharBuffer.wrap(pending.isEmpty() ? s : pending + s);
+		while (encode(encoder.encode(in, buffer(), false))) {
+		}
+		// a high surrogate at the end waits for its low surrogate in the next write()
+		pending = in.hasRemaining() ? in.toString() : "";
+	}
+
+	public void newLine() throws IOException {
+		write(System.lineSeparator());
+	}
+
+	public synchronized void writeLines(List<String> data) throws IOException {
+		for (String s : data) {
+			write(s);
+			newLine();
+		}
+	}
+
+	public synchronized CompletableFuture<Void> flush() throws IOException {
+		ensureOpen();
+		if (current != null && current.position() > 0) {
+			drain(current);
+			current = null;
+		}
+		CompletableFuture<Void> flushed = new CompletableFuture<>();
+		drainer.execute(() -> {
+			if (failure != null) {
+				flushed.completeExceptionally(failure);
+			} else {
+				flushed.complete(null);
+			}
+		});
+		return flushed;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		try {
+			endEncoding();
+			flush().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while closing");
+		} catch (ExecutionException e) {
+			// failure is thrown below
+		} finally {
+			closed = true;
+			drainer.shutdown();
+			try {
+				drainer.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			channel.close();
+		}
+		if (failure != null) {
+			throw new IOException("Background write failed", failure);
+		}
+	}
+
+	private void endEncoding() throws IOException {
+		// only at the end: a pending high surrogate alone is replaced
+		if (failure != null) {
+			return;
+		}
+		CharBuffer in = CharBuffer.wrap(pending);
+		pending = "";
+		while (encode(encoder.encode(in, buffer(), true))) {
+		}
+		while (encode(encoder.flush(buffer()))) {
+		}
+	}
+
+	private boolean encode(CoderResult result) throws IOException {
+		// true while the current buffer is full and the encoding has to continue in the next one
+		if (result.isOverflow()) {
+			drain(current);
+			current = null;
+			return true;
+		}
+		if (result.isError()) {
+			result.throwException();
+		}
+		return false;
+	}
+
+	private ByteBuffer buffer() throws IOException {
+		if (current == null) {
+			try {
+				current = free.take(); // blocks while both buffers are full
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a free buffer");
+			}
+		}
+		return current;
+	}
+
+	private void drain(ByteBuffer buffer) {
+		buffer.flip();
+		drainer.execute(() -> {
+			try {
+				while (failure == null && buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			} catch (IOException e) {
+				failure = e;
+			} finally {
+				buffer.clear();
+				free.add(buffer);
+			}
+		});
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Writer closed");
+		}
+		if (failure != null) {
+			throw new IOException("Background write failed", failure);
+		}
+	}
+}
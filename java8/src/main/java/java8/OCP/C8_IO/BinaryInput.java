@@ -0,0 +1,84 @@
+package java8.OCP.C8_IO;
+
+import java.nio.charset.StandardCharsets;
+
+// Reads what BinaryOutput writes. Truncated or corrupted data throws IllegalStateException.
+public class BinaryInput {
+	private final byte[] buffer;
+	private final int limit;
+	private int position;
+
+	public BinaryInput(byte[] buffer) {
+		this(buffer, 0, buffer.length);
+	}
+
+	public BinaryInput(byte[] buffer, int offset, int length) {
+		this.buffer = buffer;
+		this.position = offset;
+		this.limit = offset + length;
+	}
+
+	private void require(int bytes) {
+		if (bytes < 0 || bytes > limit - position) { // not position + bytes: it can overflow
+			throw new IllegalStateException("Truncated input at position " + position);
+		}
+	}
+
+	public int readByte() {
+		require(1);
+		return buffer[position++] & 0xFF;
+	}
+
+	public int readVarInt() {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = readByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Malformed varint at position " + position);
+	}
+
+	public int readSignedVarInt() {
+		int value = readVarInt();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public long readVarLong() {
+		long value = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			int b = readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Malformed varlong at position " + position);
+	}
+
+	public long readSignedVarLong() {
+		long value = readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public String readString() {
+		int length = readVarInt() - 1;
+		if (length == -1) {
+			return null;
+		}
+		require(length);
+		String s = new String(buffer, position, length, StandardCharsets.UTF_8);
+		position += length;
+		return s;
+	}
+
+	public boolean hasRemaining() {
+		return position < limit;
+	}
+
+	public int remaining() {
+		return limit - position;
+	}
+}
@@ -0,0 +1,102 @@
+package java8.OCP.C8_IO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Growable byte array with the primitive encodings used by the codecs:
+//    varint/varlong: 7 bits per byte, the high bit says that another byte follows (small values take 1 byte).
+//    zigzag: maps negative numbers to positive ones (-1 -> 1, 1 -> 2) so they also stay small as varint.
+//    string: varint length + UTF-8 bytes. The length is stored +1, so 0 means null.
+public class BinaryOutput {
+	private byte[] buffer;
+	private int position;
+
+	public BinaryOutput() {
+		this(256);
+	}
+
+	public BinaryOutput(int initialCapacity) {
+		buffer = new byte[initialCapacity];
+	}
+
+	private void ensureCapacity(int extra) {
+		if (position + extra > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+		}
+	}
+
+	public void writeByte(int b) {
+		ensureCapacity(1);
+		buffer[position++] = (byte) b;
+	}
+
+	public void writeVarInt(int value) {
+		ensureCapacity(5);
+		while ((value & ~0x7F) != 0) {
+			buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+	}
+
+	public void writeSignedVarInt(int value) {
+		writeVarInt((value << 1) ^ (value >> 31));
+	}
+
+	public void writeVarLong(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7FL) != 0) {
+			buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+	}
+
+	public void writeSignedVarLong(long value) {
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+
+	public void writeString(String s) {
+		if (s == null) {
+			writeVarInt(0);
+			return;
+		}
+		int length = s.length();
+		// ASCII fast path: one byte per char, no intermediate byte[]
+		int i = 0;
+		while (i < length && s.charAt(i) < 0x80) {
+			i++;
+		}
+		if (i == length) {
+			writeVarInt(length + 1);
+			ensureCapacity(length);
+			for (int j = 0; j < length; j++) {
+				buffer[position++] = (byte) s.charAt(j);
+			}
+		} else {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(bytes.length + 1);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, buffer, position, bytes.length);
+			position += bytes.length;
+		}
+	}
+
+	public int size() {
+		return position;
+	}
+
+	public void reset() {
+		position = 0;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, position);
+	}
+
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(buffer, 0, position);
+	}
+}
@@ -0,0 +1,22 @@
+package java8.OCP.C8_IO;
+
+// Pluggable binary codec: a fast alternative to ObjectOutputStream/ObjectInputStream.
+// Java serialization writes class metadata (class names, field names, serialVersionUID...)
+// in every stream and uses reflection to read and write the fields.
+// A codec only writes the field values, in an order both sides agree on (the schema).
+public interface Codec<T> {
+
+	void encode(T value, BinaryOutput out);
+
+	T decode(BinaryInput in);
+
+	default byte[] toBytes(T value) {
+		BinaryOutput out = new BinaryOutput();
+		encode(value, out);
+		return out.toByteArray();
+	}
+
+	default T fromBytes(byte[] bytes) {
+		return decode(new BinaryInput(bytes));
+	}
+}
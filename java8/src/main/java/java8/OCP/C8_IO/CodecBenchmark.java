@@ -0,0 +1,89 @@
+package java8.OCP.C8_IO;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import java8.OCP.C2_DesignPattern_Principles.DesignPatterns.Animal;
+import java8.OCP.C3_Generics_Collections.Comparator_Comparable.Duck;
+
+public class CodecBenchmark {
+	// Compares Java serialization with the ModelCodecs (SchemaCodec) for Animal and Duck:
+	// throughput (objects encoded and decoded per second) and payload size.
+	// Every object is a payload on its own (a message, a cache entry...), so every Java
+	// serialization uses a new ObjectOutputStream, with the class metadata in it.
+	// Usage: CodecBenchmark [objects]. Default 200000.
+	// Every measure is taken after a warm-up round.
+
+	static class Result {
+		final double seconds;
+		final long bytes;
+
+		Result(double seconds, long bytes) {
+			this.seconds = seconds;
+			this.bytes = bytes;
+		}
+	}
+
+	static <T extends Serializable> Result javaSerialization(List<T> objects) throws IOException, ClassNotFoundException {
+		long start = System.nanoTime();
+		long bytes = 0;
+		for (T object : objects) {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+				out.writeObject(object);
+			}
+			byte[] payload = buffer.toByteArray();
+			bytes += payload.length;
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+				in.readObject();
+			}
+		}
+		return new Result((System.nanoTime() - start) / 1_000_000_000.0, bytes);
+	}
+
+	static <T> Result codec(Codec<T> codec, List<T> objects) {
+		long start = System.nanoTime();
+		long bytes = 0;
+		BinaryOutput out = new BinaryOutput();
+		for (T object : objects) {
+			out.reset();
+			codec.encode(object, out);
+			byte[] payload = out.toByteArray();
+			bytes += payload.length;
+			codec.decode(new BinaryInput(payload));
+		}
+		return new Result((System.nanoTime() - start) / 1_000_000_000.0, bytes);
+	}
+
+	static <T extends Serializable> void compare(String name, Codec<T> codec, List<T> objects)
+			throws IOException, ClassNotFoundException {
+		javaSerialization(objects); // warm-up
+		codec(codec, objects);
+		Result java = javaSerialization(objects);
+		Result binary = codec(codec, objects);
+		System.out.println(name + " (" + objects.size() + " objects):");
+		System.out.println("\tJava serialization: " + java.seconds + " seconds, " + java.bytes + " bytes");
+		System.out.println("\tSchemaCodec:        " + binary.seconds + " seconds, " + binary.bytes + " bytes");
+		System.out.println("\tthroughput x" + String.format("%.1f", java.seconds / binary.seconds)
+				+ ", payload /" + String.format("%.1f", (double) java.bytes / binary.bytes));
+	}
+
+	public static void main(String[] args) throws IOException, ClassNotFoundException {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+		List<Animal> animals = new ArrayList<>(count);
+		List<Duck> ducks = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			animals.add(new Animal("Lion", i % 30, Arrays.asList("Meat", "More meat")));
+			ducks.add(new Duck("Quack", i));
+		}
+		compare("Animal", ModelCodecs.ANIMAL, animals);
+		compare("Duck", ModelCodecs.DUCK, ducks);
+	}
+}
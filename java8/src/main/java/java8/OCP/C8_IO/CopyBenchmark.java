@@ -0,0 +1,67 @@
+package java8.OCP.C8_IO;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+public class CopyBenchmark {
+	// Compares IO.copyBufferedStream() (1 KB buffer, flush() per chunk) with
+	// IO.copyAdaptiveBufferedStream() (sized buffer, flush only on close).
+	// Usage: CopyBenchmark [sizeInMB...]. Default sizes are 1 MB, 100 MB and 2 GB.
+	// The files are created in java.io.tmpdir and deleted at the end.
+	// Every measure is taken after a warm-up copy, so the JIT and the page cache do not favor one method.
+
+	private static final long MB = 1024 * 1024;
+
+	interface Copier {
+		void copy(File source, File destination) throws IOException;
+	}
+
+	static File createFile(long size) throws IOException {
+		File file = File.createTempFile("copy-benchmark", ".bin");
+		file.deleteOnExit();
+		byte[] chunk = new byte[(int) Math.min(size, MB)];
+		new Random(42).nextBytes(chunk);
+		try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+			for (long written = 0; written < size; written += chunk.length) {
+				out.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+			}
+		}
+		return file;
+	}
+
+	static double measure(Copier copier, File source, File destination) throws IOException {
+		copier.copy(source, destination); // warm-up
+		long start = System.nanoTime();
+		copier.copy(source, destination);
+		return (System.nanoTime() - start) / 1_000_000_000.0;
+	}
+
+	public static void main(String[] args) throws IOException {
+		long[] sizes = { 1 * MB, 100 * MB, 2048 * MB };
+		if (args.length > 0) {
+			sizes = new long[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Long.parseLong(args[i]) * MB;
+			}
+		}
+		for (long size : sizes) {
+			File source = createFile(size);
+			File destination = File.createTempFile("copy-benchmark", ".copy");
+			destination.deleteOnExit();
+			try {
+				double buffered = measure(IO::copyBufferedStream, source, destination);
+				double adaptive = measure(IO::copyAdaptiveBufferedStream, source, destination);
+				System.out.println((size / MB) + " MB:");
+				System.out.println("\tcopyBufferedStream:         " + buffered + " seconds ("
+						+ String.format("%.1f", size / MB / buffered) + " MB/s)");
+				System.out.println("\tcopyAdaptiveBufferedStream: " + adaptive + " seconds ("
+						+ String.format("%.1f", size / MB / adaptive) + " MB/s)");
+			} finally {
+				source.delete();
+				destination.delete();
+			}
+		}
+	}
+}
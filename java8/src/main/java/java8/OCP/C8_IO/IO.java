@@ -18,13 +18,32 @@ import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Scanner;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
 
 public class IO {
 	public static void copyStream(File source, File destination) throws IOException {
@@ -55,6 +74,354 @@ public class IO {
 		}
 	}
 	
+	// Result of a timed copy: bytes moved and elapsed time, so the different copy modes can be compared.
+	public static class CopyStats {
+		private final long bytes;
+		private final long nanos;
+
+		public CopyStats(long bytes, long nanos) {
+			this.bytes = bytes;
+			this.nanos = nanos;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		public double bytesPerSecond() {
+			return nanos == 0 ? 0 : bytes * 1_000_000_000.0 / nanos;
+		}
+
+		public String toString() {
+			return bytes + " bytes in " + (nanos / 1_000_000) + " ms ("
+					+ String.format("%.1f", bytesPerSecond() / (1024 * 1024)) + " MB/s)";
+		}
+	}
+
+	public static CopyStats copyChannel(File source, File destination) throws IOException {
+		// Zero-copy: FileChannel.transferTo() asks the OS to move the bytes from one file to
+		// the other (sendfile, copy_file_range...), so the data never lands in the Java heap.
+		// transferTo() may move less than requested, so it has to be called in a loop.
+		// If the channels do not support it (returns 0 or fails) it falls back to a buffered loop.
+		long start = System.nanoTime();
+		try (FileChannel in = new FileInputStream(source).getChannel();
+				FileChannel out = new FileOutputStream(destination).getChannel()) {
+			long size = in.size();
+			long position = 0;
+			try {
+				long transferred;
+				while (position < size && (transferred = in.transferTo(position, size - position, out)) > 0) {
+					position += transferred;
+				}
+			} catch (IOException e) {
+				// transferTo() not supported between these channels, continue with the buffered loop.
+			}
+			if (position < size) {
+				position += copyChannelBuffered(in, out, position);
+			}
+			return new CopyStats(position, System.nanoTime() - start);
+		}
+	}
+
+	private static long copyChannelBuffered(FileChannel in, FileChannel out, long position) throws IOException {
+		// A direct buffer still keeps the bytes out of the Java heap.
+		ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+		in.position(position);
+		out.position(position);
+		long copied = 0;
+		while (in.read(buffer) != -1) {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				copied += out.write(buffer);
+			}
+			buffer.clear();
+		}
+		return copied;
+	}
+	
+	// Limits for the buffer of copyAdaptiveBufferedStream().
+	public static final int MIN_COPY_BUFFER = 8 * 1024;
+	public static final int MAX_COPY_BUFFER = 4 * 1024 * 1024;
+	private static final int DEFAULT_BLOCK_SIZE = 4096;
+	private static final int POOLED_BUFFERS_PER_THREAD = 2;
+	private static final ThreadLocal<Deque<byte[]>> BUFFER_POOL = ThreadLocal.withInitial(ArrayDeque::new);
+
+	public static CopyStats copyAdaptiveBufferedStream(File source, File destination) throws IOException {
+		return copyAdaptiveBufferedStream(source, destination, 0);
+	}
+
+	public static CopyStats copyAdaptiveBufferedStream(File source, File destination, long flushThreshold)
+			throws IOException {
+		// Reworked copyBufferedStream():
+		//    the buffer is sized from the file size and the file system block size (up to MAX_COPY_BUFFER),
+		//    flush() is only called every flushThreshold bytes (0 means only on close),
+		//    the buffer is borrowed from a small per-thread pool instead of allocated on every call.
+		// BufferedOutputStream writes arrays as big as its own buffer straight through, without copying.
+		long start = System.nanoTime();
+		int bufferSize = copyBufferSize(source.length(), blockSize(source));
+		byte[] buffer = borrowBuffer(bufferSize);
+		long copied = 0;
+		try (InputStream in = new FileInputStream(source);
+				OutputStream out = new BufferedOutputStream(new FileOutputStream(destination), bufferSize)) {
+			long sinceFlush = 0;
+			int lengthRead;
+			while ((lengthRead = in.read(buffer, 0, bufferSize)) > 0) {
+				out.write(buffer, 0, lengthRead);
+				copied += lengthRead;
+				sinceFlush += lengthRead;
+				if (flushThreshold > 0 && sinceFlush >= flushThreshold) {
+					out.flush();
+					sinceFlush = 0;
+				}
+			}
+		} finally {
+			releaseBuffer(buffer);
+		}
+		return new CopyStats(copied, System.nanoTime() - start);
+	}
+
+	// Result of copyWithChecksum(): the checksum (and digest) of the bytes that were written.
+	public static class ChecksumCopyStats extends CopyStats {
+		private final String algorithm;
+		private final long checksum;
+		private final byte[] digest;
+
+		public ChecksumCopyStats(long bytes, long nanos, String algorithm, long checksum, byte[] digest) {
+			super(bytes, nanos);
+			this.algorithm = algorithm;
+			this.checksum = checksum;
+			this.digest = digest;
+		}
+
+		public String getAlgorithm() {
+			return algorithm;
+		}
+
+		public long getChecksum() {
+			return checksum;
+		}
+
+		public byte[] getDigest() { // null if no MessageDigest was given
+			return digest == null ? null : digest.clone();
+		}
+
+		public String toString() {
+			return super.toString() + " " + algorithm + "=" + Long.toHexString(checksum);
+		}
+	}
+
+	public static ChecksumCopyStats copyWithChecksum(File source, File destination) throws IOException {
+		return copyWithChecksum(source, destination, null);
+	}
+
+	public static ChecksumCopyStats copyWithChecksum(File source, File destination, MessageDigest digest)
+			throws IOException {
+		// Computes the checksum over the same buffers while copying, so verifying the copy
+		// does not need to read the destination again: compare with checksum(source) or a stored value.
+		// The checksum is CRC32C (Java 9+, faster in hardware) or CRC32 on Java 8.
+		// The digest (MessageDigest.getInstance("SHA-256")...) is optional, it is reset before the copy.
+		long start = System.nanoTime();
+		Checksum checksum = newChecksum();
+		if (digest != null) {
+			digest.reset();
+		}
+		int bufferSize = copyBufferSize(source.length(), blockSize(source));
+		byte[] buffer = borrowBuffer(bufferSize);
+		long copied = 0;
+		try (InputStream in = new FileInputStream(source); OutputStream out = new FileOutputStream(destination)) {
+			int lengthRead;
+			while ((lengthRead = in.read(buffer, 0, bufferSize)) > 0) {
+				out.write(buffer, 0, lengthRead);
+				checksum.update(buffer, 0, lengthRead);
+				if (digest != null) {
+					digest.update(buffer, 0, lengthRead);
+				}
+				copied += lengthRead;
+			}
+		} finally {
+			releaseBuffer(buffer);
+		}
+		return new ChecksumCopyStats(copied, System.nanoTime() - start, checksum.getClass().getSimpleName(),
+				checksum.getValue(), digest == null ? null : digest.digest());
+	}
+
+	public static long checksum(File file) throws IOException {
+		// Same algorithm as copyWithChecksum()
+		Checksum checksum = newChecksum();
+		int bufferSize = copyBufferSize(file.length(), blockSize(file));
+		byte[] buffer = borrowBuffer(bufferSize);
+		try (InputStream in = new FileInputStream(file)) {
+			int lengthRead;
+			while ((lengthRead = in.read(buffer, 0, bufferSize)) > 0) {
+				checksum.update(buffer, 0, lengthRead);
+			}
+		} finally {
+			releaseBuffer(buffer);
+		}
+		return checksum.getValue();
+	}
+
+	static Checksum newChecksum() {
+		try {
+			return (Checksum) Class.forName("java.util.zip.CRC32C").newInstance();
+		} catch (ReflectiveOperationException e) {
+			return new CRC32(); // Java 8
+		}
+	}
+
+	static int copyBufferSize(long fileSize, int blockSize) {
+		// Around 1/16 of the file, a multiple of the block size, between MIN_COPY_BUFFER and MAX_COPY_BUFFER.
+		// A small file is read in a single call.
+		long size = fileSize <= MIN_COPY_BUFFER ? fileSize : fileSize / 16;
+		size = Math.max(MIN_COPY_BUFFER, Math.min(MAX_COPY_BUFFER, size));
+		size = (size + blockSize - 1) / blockSize * blockSize;
+		return (int) Math.min(size, MAX_COPY_BUFFER);
+	}
+
+	static int blockSize(File file) {
+		// FileStore.getBlockSize() only exists since Java 10.
+		try {
+			FileStore store = Files.getFileStore(file.toPath());
+			Object blockSize = FileStore.class.getMethod("getBlockSize").invoke(store);
+			long size = ((Long) blockSize).longValue();
+			if (size > 0 && size <= MAX_COPY_BUFFER) {
+				return (int) size;
+			}
+		} catch (Exception e) {
+			// not available, use the default
+		}
+		return DEFAULT_BLOCK_SIZE;
+	}
+
+	private static byte[] borrowBuffer(int size) {
+		Iterator<byte[]> pooled = BUFFER_POOL.get().iterator();
+		while (pooled.hasNext()) {
+			byte[] buffer = pooled.next();
+			if (buffer.length >= size) {
+				pooled.remove();
+				return buffer;
+			}
+		}
+		return new byte[size];
+	}
+
+	private static void releaseBuffer(byte[] buffer) {
+		Deque<byte[]> pool = BUFFER_POOL.get();
+		if (pool.size() >= POOLED_BUFFERS_PER_THREAD) {
+			pool.removeLast(); // keep the newest buffers, the pool stays small
+		}
+		pool.addFirst(buffer);
+	}
+
+	// Default size of the sliding window used by the memory-mapped methods.
+	public static final int DEFAULT_MAP_WINDOW = 64 * 1024 * 1024;
+
+	public static CopyStats copyMapped(File source, File destination) throws IOException {
+		return copyMapped(source, destination, DEFAULT_MAP_WINDOW);
+	}
+
+	public static CopyStats copyMapped(File source, File destination, int windowSize) throws IOException {
+		// For very large files: map a window of both files in memory and copy between the mappings.
+		// The OS pages the data in and out, there is no read() into a heap buffer.
+		// Only one window of each file is mapped at a time, and it is released before the next one.
+		if (windowSize <= 0) {
+			throw new IllegalArgumentException("windowSize must be positive: " + windowSize);
+		}
+		long start = System.nanoTime();
+		try (RandomAccessFile in = new RandomAccessFile(source, "r");
+				RandomAccessFile out = new RandomAccessFile(destination, "rw")) {
+			FileChannel inChannel = in.getChannel();
+			FileChannel outChannel = out.getChannel();
+			long size = inChannel.size();
+			out.setLength(size); // the destination must be as big as the mapped region
+			for (long position = 0; position < size; position += windowSize) {
+				long length = Math.min(windowSize, size - position);
+				MappedByteBuffer inMap = inChannel.map(MapMode.READ_ONLY, position, length);
+				MappedByteBuffer outMap = null;
+				try {
+					outMap = outChannel.map(MapMode.READ_WRITE, position, length);
+					outMap.put(inMap);
+					outMap.force();
+				} finally {
+					unmap(inMap);
+					unmap(outMap);
+				}
+			}
+			return new CopyStats(size, System.nanoTime() - start);
+		}
+	}
+
+	public static boolean contentEquals(File first, File second) throws IOException {
+		return contentEquals(first, second, DEFAULT_MAP_WINDOW);
+	}
+
+	public static boolean contentEquals(File first, File second, int windowSize) throws IOException {
+		// Byte-for-byte compare of two files through mapped windows. ByteBuffer.equals() compares
+		// the remaining bytes of both buffers, so no heap buffer is filled to verify a copy.
+		if (windowSize <= 0) {
+			throw new IllegalArgumentException("windowSize must be positive: " + windowSize);
+		}
+		try (RandomAccessFile a = new RandomAccessFile(first, "r");
+				RandomAccessFile b = new RandomAccessFile(second, "r")) {
+			FileChannel aChannel = a.getChannel();
+			FileChannel bChannel = b.getChannel();
+			long size = aChannel.size();
+			if (size != bChannel.size()) {
+				return false; // cheap check first
+			}
+			for (long position = 0; position < size; position += windowSize) {
+				long length = Math.min(windowSize, size - position);
+				MappedByteBuffer aMap = aChannel.map(MapMode.READ_ONLY, position, length);
+				MappedByteBuffer bMap = null;
+				try {
+					bMap = bChannel.map(MapMode.READ_ONLY, position, length);
+					if (!aMap.equals(bMap)) {
+						return false;
+					}
+				} finally {
+					unmap(aMap);
+					unmap(bMap);
+				}
+			}
+			return true;
+		}
+	}
+
+	public static void unmap(MappedByteBuffer buffer) {
+		// A mapping is only released when the buffer is garbage collected, so a long-running
+		// process may run out of address space (and on Windows the file stays locked).
+		// There is no public API to release it: use the JDK cleaner, if it is accessible.
+		if (buffer == null) {
+			return;
+		}
+		try {
+			// Java 9+: sun.misc.Unsafe.invokeCleaner(ByteBuffer)
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+		} catch (NoSuchMethodException e) {
+			try {
+				// Java 8: ((sun.nio.ch.DirectBuffer) buffer).cleaner().clean()
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			} catch (Exception ignored) {
+				// left to the garbage collector
+			}
+		} catch (Exception ignored) {
+			// left to the garbage collector
+		}
+	}
+	
 	public static List<String> readFile(File source) throws IOException {
 		List<String> data = new ArrayList<String>();
 		try (BufferedReader reader = new BufferedReader(new FileReader(source))) {
@@ -66,6 +433,27 @@ public class IO {
 		return data;
 	}
 
+	public static Stream<String> lines(File source) throws IOException {
+		// Same default charset as the FileReader used by readFile()
+		return lines(source, Charset.defaultCharset());
+	}
+
+	public static Stream<String> lines(File source, Charset charset) throws IOException {
+		// Lazy alternative to readFile(): the lines are read while the stream is consumed,
+		// so the memory used does not depend on the file size.
+		// The stream must be closed (try-with-resources) to close the file.
+		// For an Iterator<String> use lines(source).iterator().
+		// An IOException while reading is thrown as an UncheckedIOException.
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(source), charset));
+		return StreamSupport.stream(new LineSpliterator(reader, source.length()), false).onClose(() -> {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
 	public static void writeFile(List<String> data, File destination) throws IOException {
 		try (BufferedWriter writer = new BufferedWriter(new FileWriter(destination))) {
 			for (String s : data) {
@@ -179,11 +567,21 @@ public class IO {
 		//   copyStream(source,destination);		
 		// The BufferedInputStream and BufferedOutputStream Classes
 		//   copyBufferedStream(source,destination);		
+		//   copyAdaptiveBufferedStream(source,destination); // bigger buffer, no flush() per chunk
+		//   See CopyBenchmark for a comparison of both.
+		//   copyWithChecksum(source,destination); // the checksum to verify the copy, in the same pass
+		// The FileChannel class (NIO). transferTo() copies without going through the Java heap.
+		//   System.out.println(copyChannel(source,destination));
+		// Memory-mapped files (NIO). For very big files, copy and compare through a sliding window.
+		//   System.out.println(copyMapped(source,destination));
+		//   System.out.println(contentEquals(source,destination));
 		
 		// The FileReader and FileWriter classes		
 		// The BufferedReader and BufferedWriter Classes
 		//   List<String> list = readFile(source);
+		//   try (Stream<String> lines = lines(source)) { lines.forEach(System.out::println); } // lazy
 		//   writeFile(list, destination);
+		//   try (AsyncFileWriter writer = new AsyncFileWriter(destination)) { writer.writeLines(list); } // async
 		
 		// The ObjectInputStream and ObjectOutputStream Classes
 		// For Serializing and Deserializing Objects.
@@ -200,6 +598,8 @@ public class IO {
 		// Besides, static class members will also be ignored during the serialization process.
 		// serialVersionUID: (version control) update this static class variable if you modify the class.
 		//   do not rely on the generated serialVersionUID provided by the Java compiler
+		// Java serialization is slow and verbose (class metadata in every stream). Codec/SchemaCodec only
+		//   write the field values: ModelCodecs.DUCK.toBytes(duck). See CodecBenchmark.
 		
 		// The PrintStream (outputStream for bytes) and PrintWriter Classes (for characters)
 		// System.out and System.err are actually PrintStream objects.
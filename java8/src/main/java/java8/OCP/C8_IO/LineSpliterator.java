@@ -0,0 +1,91 @@
+package java8.OCP.C8_IO;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+// Lazy Spliterator over the lines of a reader. Only the current line is in memory when the stream
+// is sequential. On a parallel stream trySplit() hands a batch of lines to another thread, so the
+// memory used is bounded by the batch size, not by the file size.
+// The size is an estimate: remaining length of the file / average line length seen so far.
+// SIZED is not reported because the number of lines is not known until the end of the file,
+// and count() or toArray() would trust a wrong exact size.
+class LineSpliterator implements Spliterator<String> {
+	private static final int BATCH_UNIT = 1024;
+	private static final int MAX_BATCH = 64 * 1024; // lines
+	private static final int INITIAL_LINE_LENGTH = 80; // until a line has been read
+
+	private final BufferedReader reader;
+	private final long length;
+	private long consumed;
+	private long lines;
+	private int batch;
+
+	LineSpliterator(BufferedReader reader, long length) {
+		this.reader = reader;
+		this.length = length;
+	}
+
+	private String readLine() {
+		try {
+			String line = reader.readLine();
+			if (line != null) {
+				consumed += line.length() + 1; // plus the line terminator
+				lines++;
+			}
+			return line;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super String> action) {
+		String line = readLine();
+		if (line == null) {
+			return false;
+		}
+		action.accept(line);
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super String> action) {
+		String line;
+		while ((line = readLine()) != null) {
+			action.accept(line);
+		}
+	}
+
+	@Override
+	public Spliterator<String> trySplit() {
+		// Same approach as Spliterators.AbstractSpliterator: the prefix is an array of lines,
+		// which is SIZED and SUBSIZED, and the batch grows on every split.
+		int n = Math.min(batch + BATCH_UNIT, MAX_BATCH);
+		String[] prefix = new String[n];
+		int i = 0;
+		String line;
+		while (i < n && (line = readLine()) != null) {
+			prefix[i++] = line;
+		}
+		if (i == 0) {
+			return null;
+		}
+		batch = i;
+		return Spliterators.spliterator(prefix, 0, i, ORDERED | NONNULL | IMMUTABLE);
+	}
+
+	@Override
+	public long estimateSize() {
+		double bytesPerLine = lines == 0 ? INITIAL_LINE_LENGTH : (double) consumed / lines;
+		return (long) Math.ceil(Math.max(0, length - consumed) / bytesPerLine);
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL;
+	}
+}
@@ -0,0 +1,37 @@
+package java8.OCP.C8_IO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java8.OCP.C2_DesignPattern_Principles.DesignPatterns.Animal;
+import java8.OCP.C3_Generics_Collections.Comparator_Comparable.Duck;
+import java8.OCP.C8_IO.SchemaCodec.FieldType;
+
+// Schemas of the model classes of the other chapters.
+// Adding, removing or reordering a field changes the binary format: like serialVersionUID,
+// data written with the old schema cannot be read with the new one.
+public class ModelCodecs {
+
+	@SuppressWarnings("unchecked")
+	public static final Codec<Animal> ANIMAL = SchemaCodec
+			.builder(v -> new Animal((String) v[0], (Integer) v[1], (List<String>) v[2]))
+			.field(Animal::getSpecies, FieldType.STRING)
+			.field(Animal::getAge, FieldType.INT)
+			.field(ModelCodecs::favoriteFoods, FieldType.listOf(FieldType.STRING))
+			.build();
+
+	public static final Codec<Duck> DUCK = SchemaCodec
+			.builder(v -> new Duck((String) v[0], (Integer) v[1]))
+			.field(Duck::getName, FieldType.STRING)
+			.field(Duck::getId, FieldType.INT)
+			.build();
+
+	private static List<String> favoriteFoods(Animal animal) {
+		// Animal does not expose its list (immutable class), only the elements
+		List<String> foods = new ArrayList<>(animal.getFavoriteFoodsCount());
+		for (int i = 0; i < animal.getFavoriteFoodsCount(); i++) {
+			foods.add(animal.getFavoriteFood(i));
+		}
+		return foods;
+	}
+}
@@ -0,0 +1,140 @@
+package java8.OCP.C8_IO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+// Codec driven by a schema: the ordered list of fields of the class, each one with a getter
+// and a FieldType that knows how to write and read the value.
+// Decoding reads the fields in the same order and passes them to the factory
+// (usually the constructor), so it also works with immutable classes.
+// Built with the builder pattern:
+//    SchemaCodec.builder(v -> new Duck((String) v[0], (Integer) v[1]))
+//        .field(Duck::getName, FieldType.STRING)
+//        .field(Duck::getId, FieldType.INT)
+//        .build();
+public class SchemaCodec<T> implements Codec<T> {
+
+	public interface FieldType<V> {
+		void write(V value, BinaryOutput out);
+
+		V read(BinaryInput in);
+
+		FieldType<Integer> INT = new FieldType<Integer>() {
+			public void write(Integer value, BinaryOutput out) {
+				out.writeSignedVarInt(value);
+			}
+
+			public Integer read(BinaryInput in) {
+				return in.readSignedVarInt();
+			}
+		};
+
+		FieldType<String> STRING = new FieldType<String>() {
+			public void write(String value, BinaryOutput out) {
+				out.writeString(value);
+			}
+
+			public String read(BinaryInput in) {
+				return in.readString();
+			}
+		};
+
+		static <E> FieldType<List<E>> listOf(FieldType<E> elementType) {
+			// varint size + elements. The size is stored +1, so 0 means null.
+			return new FieldType<List<E>>() {
+				public void write(List<E> value, BinaryOutput out) {
+					if (value == null) {
+						out.writeVarInt(0);
+						return;
+					}
+					out.writeVarInt(value.size() + 1);
+					for (E e : value) {
+						elementType.write(e, out);
+					}
+				}
+
+				public List<E> read(BinaryInput in) {
+					int size = in.readVarInt() - 1;
+					if (size == -1) {
+						return null;
+					}
+					if (size < 0) {
+						throw new IllegalStateException("Corrupted list size: " + size);
+					}
+					// every element takes at least one byte: a corrupted size cannot allocate more than that
+					List<E> list = new ArrayList<>(Math.min(size, in.remaining()));
+					for (int i = 0; i < size; i++) {
+						list.add(elementType.read(in));
+					}
+					return list;
+				}
+			};
+		}
+	}
+
+	private static class Field<T, V> {
+		private final Function<T, V> getter;
+		private final FieldType<V> type;
+
+		Field(Function<T, V> getter, FieldType<V> type) {
+			this.getter = getter;
+			this.type = type;
+		}
+
+		void write(T object, BinaryOutput out) {
+			type.write(getter.apply(object), out);
+		}
+
+		Object read(BinaryInput in) {
+			return type.read(in);
+		}
+	}
+
+	public static class Builder<T> {
+		private final Function<Object[], T> factory;
+		private final List<Field<T, ?>> fields = new ArrayList<>();
+
+		private Builder(Function<Object[], T> factory) {
+			this.factory = factory;
+		}
+
+		public <V> Builder<T> field(Function<T, V> getter, FieldType<V> type) {
+			fields.add(new Field<>(getter, type));
+			return this;
+		}
+
+		public SchemaCodec<T> build() {
+			return new SchemaCodec<>(factory, fields);
+		}
+	}
+
+	public static <T> Builder<T> builder(Function<Object[], T> factory) {
+		return new Builder<>(factory);
+	}
+
+	private final Function<Object[], T> factory;
+	private final List<Field<T, ?>> fields;
+
+	private SchemaCodec(Function<Object[], T> factory, List<Field<T, ?>> fields) {
+		this.factory = factory;
+		this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
+	}
+
+	@Override
+	public void encode(T value, BinaryOutput out) {
+		for (Field<T, ?> field : fields) {
+			field.write(value, out);
+		}
+	}
+
+	@Override
+	public T decode(BinaryInput in) {
+		Object[] values = new Object[fields.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = fields.get(i).read(in);
+		}
+		return factory.apply(values);
+	}
+}
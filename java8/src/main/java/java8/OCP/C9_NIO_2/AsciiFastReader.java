@@ -0,0 +1,216 @@
+package java8.OCP.C9_NIO_2;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+
+public class AsciiFastReader extends Reader {
+	// Files.newBufferedReader(path, charset) decodes every buffer with a CharsetDecoder, byte by byte.
+	// For US-ASCII, ISO-8859-1 and UTF-8 an ASCII byte (0..127) is the char with the same value,
+	// so a run of ASCII bytes only has to be widened from byte to char.
+	// This reader widens the ASCII runs itself, 16 bytes at a time: the block is first checked
+	// (OR of its bytes, negative if one is not ASCII) and then copied, two counted loops without
+	// exits that the JIT can unroll and vectorize. Only the non-ASCII runs of a UTF-8 file
+	// go through the CharsetDecoder.
+	// Same behavior as Files.newBufferedReader(): malformed input throws a MalformedInputException.
+	// For any other charset newBufferedReader() returns Files.newBufferedReader(), and also from Java 17 on:
+	// its decoders have the same ASCII fast path, as an intrinsic of the JVM (faster than this loop).
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final int BLOCK = 16;
+	private static final boolean JDK_FAST_PATH = javaVersion() >= 17;
+
+	private final InputStream in;
+	private final CharsetDecoder decoder; // null: no multi-byte chars (US-ASCII, ISO-8859-1)
+	private final boolean latin1;
+	private final byte[] bytes = new byte[BUFFER_SIZE];
+	private final ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+	private int position;
+	private int limit;
+	private boolean eof;
+	private int pending = -1; // a decoded char that did not fit in the caller's array
+
+	public static BufferedReader newBufferedReader(Path path, Charset charset, OpenOption... options)
+			throws IOException {
+		if (JDK_FAST_PATH || !isSupported(charset)) {
+			return Files.newBufferedReader(path, charset);
+		}
+		return new BufferedReader(new AsciiFastReader(Files.newInputStream(path, options), charset));
+	}
+
+	public static boolean isSupported(Charset charset) {
+		return charset.equals(StandardCharsets.US_ASCII) || charset.equals(StandardCharsets.ISO_8859_1)
+				|| charset.equals(StandardCharsets.UTF_8);
+	}
+
+	public AsciiFastReader(InputStream in, Charset charset) {
+		if (!isSupported(charset)) {
+			throw new IllegalArgumentException("Not an ASCII compatible charset: " + charset);
+		}
+		this.in = in;
+		this.latin1 = charset.equals(StandardCharsets.ISO_8859_1);
+		this.decoder = charset.equals(StandardCharsets.UTF_8) ? charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT) : null;
+	}
+
+	@Override
+	public int read(char[] chars, int offset, int length) throws IOException {
+		if (offset < 0 || length < 0 || length > chars.length - offset) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (length == 0) {
+			return 0;
+		}
+		int count = 0;
+		if (pending >= 0) {
+			chars[offset] = (char) pending;
+			pending = -1;
+			count = 1;
+		}
+		while (count < length) {
+			if (position == limit && !fill(count > 0)) {
+				break;
+			}
+			int read = latin1 ? widenLatin1(chars, offset + count, length - count)
+					: widenAscii(chars, offset + count, length - count);
+			count += read;
+			if (read == 0 && position < limit) { // stopped on a byte that is not ASCII
+				int decoded = decode(chars, offset + count, length - count);
+				if (decoded < 0) { // incomplete sequence at the end of the buffer
+					if (!fill(count > 0)) {
+						break;
+					}
+				} else {
+					count += decoded;
+					if (decoded == 0) {
+						break; // no room for a surrogate pair: next call
+					}
+				}
+			}
+		}
+		return count == 0 && eof ? -1 : count;
+	}
+
+	private int widenAscii(char[] chars, int offset, int length) throws IOException {
+		byte[] b = bytes;
+		int start = position;
+		int end = start + Math.min(length, limit - start);
+		int i = start;
+		int o = offset - start;
+		for (; i + BLOCK <= end; i += BLOCK) {
+			int or = 0;
+			for (int k = 0; k < BLOCK; k++) {
+				byte c = b[i + k];
+				chars[o + i + k] = (char) c;
+				or |= c;
+			}
+			if (or < 0) {
+				break; // the chars of this block are written again below
+			}
+		}
+		for (; i < end && b[i] >= 0; i++) {
+			chars[o + i] = (char) b[i];
+		}
+		if (decoder == null && i < end) {
+			throw new MalformedInputException(1); // US-ASCII
+		}
+		position = i;
+		return i - start;
+	}
+
+	private int widenLatin1(char[] chars, int offset, int length) {
+		// every byte is a char: no check at all
+		int n = Math.min(length, limit - position);
+		for (int k = 0; k < n; k++) {
+			chars[offset + k] = (char) (bytes[position + k] & 0xff);
+		}
+		position += n;
+		return n;
+	}
+
+	private int decode(char[] chars, int offset, int length) throws IOException {
+		// Decodes the run of non-ASCII bytes: in UTF-8 all the bytes of a multi-byte sequence are negative,
+		// so the run ends with a complete sequence unless it is cut by the end of the buffer.
+		int end = position;
+		while (end < limit && bytes[end] < 0) {
+			end++;
+		}
+		boolean complete = end < limit || eof;
+		byteBuffer.limit(end).position(position);
+		boolean small = length < 2;
+		CharBuffer out = small ? CharBuffer.allocate(2) : CharBuffer.wrap(chars, offset, length);
+		CoderResult result = decoder.decode(byteBuffer, out, complete);
+		if (result.isError()) {
+			decoder.reset();
+			result.throwException();
+		}
+		if (complete && result.isUnderflow() && byteBuffer.hasRemaining()) {
+			decoder.reset();
+			throw new MalformedInputException(byteBuffer.remaining());
+		}
+		decoder.reset(); // UTF-8 keeps no state between complete sequences
+		int consumed = byteBuffer.position() - position;
+		position = byteBuffer.position();
+		if (consumed == 0) {
+			return complete ? 0 : -1;
+		}
+		if (small) { // decoded in the small buffer: the second char (e.g. of a surrogate pair) waits
+			chars[offset] = out.get(0);
+			if (out.position() == 2) {
+				pending = out.get(1);
+			}
+			return 1;
+		}
+		return out.position() - offset;
+	}
+
+	private boolean fill(boolean haveChars) throws IOException {
+		// Moves the bytes not consumed to the start and reads more. Does not read (returns false)
+		// if some chars were already read: the caller gets them without waiting for the stream.
+		if (eof || haveChars) {
+			return false;
+		}
+		int remaining = limit - position;
+		System.arraycopy(bytes, position, bytes, 0, remaining);
+		position = 0;
+		limit = remaining;
+		int n = in.read(bytes, limit, bytes.length - limit);
+		if (n < 0) {
+			eof = true;
+			return remaining > 0; // an incomplete sequence left: decode() reports it
+		}
+		limit += n;
+		return true;
+	}
+
+	@Override
+	public boolean ready() throws IOException {
+		return pending >= 0 || position < limit || in.available() > 0;
+	}
+
+	private static int javaVersion() {
+		String version = System.getProperty("java.specification.version"); // 1.8, 9, 10...
+		try {
+			return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+		} catch (NumberFormatException e) {
+			return 8;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
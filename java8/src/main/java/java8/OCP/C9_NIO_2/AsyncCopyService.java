@@ -0,0 +1,271 @@
+package java8.OCP.C9_NIO_2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class AsyncCopyService implements Closeable {
+	// Runs many file copies at once with AsynchronousFileChannel and completion handlers:
+	// no thread is parked waiting for a read or a write, a small pool runs the handlers of all the copies.
+	// Files.copy() or IO.copyStream() would need a thread per concurrent copy.
+	// Every running copy holds one buffer of up to chunkSize bytes. The sum of those buffers (the bytes
+	// in flight) is capped by maxInFlightBytes; the copies that do not fit wait in FIFO order.
+	// A failed or cancelled copy deletes its partial target.
+
+	public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	@FunctionalInterface
+	public interface ProgressListener {
+		void onProgress(Path source, long copied, long total);
+
+		ProgressListener NONE = (source, copied, total) -> {
+		};
+	}
+
+	private final ExecutorService executor;
+	private final int chunkSize;
+	private final long maxInFlightBytes;
+	private final Object lock = new Object();
+	private final Deque<CopyTask> waiting = new ArrayDeque<>();
+	private long available;
+
+	public AsyncCopyService(long maxInFlightBytes) {
+		this(maxInFlightBytes, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+	}
+
+	public AsyncCopyService(long maxInFlightBytes, int chunkSize, int threads) {
+		if (maxInFlightBytes <= 0 || chunkSize <= 0) {
+			throw new IllegalArgumentException("maxInFlightBytes and chunkSize must be positive");
+		}
+		this.maxInFlightBytes = maxInFlightBytes;
+		this.available = maxInFlightBytes;
+		this.chunkSize = chunkSize;
+		this.executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "async-copy");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	public CopyTask copy(Path source, Path target) {
+		return copy(source, target, ProgressListener.NONE);
+	}
+
+	public CopyTask copy(Path source, Path target, ProgressListener listener) {
+		CopyTask task = new CopyTask(source, target, listener);
+		try {
+			long size = Files.size(source);
+			task.reserved = (int) Math.max(1, Math.min(Math.min(chunkSize, size), maxInFlightBytes));
+		} catch (IOException e) {
+			task.result.completeExceptionally(e);
+			return task;
+		}
+		boolean start;
+		synchronized (lock) {
+			start = waiting.isEmpty() && available >= task.reserved;
+			if (start) {
+				available -= task.reserved;
+			} else {
+				waiting.add(task);
+			}
+		}
+		if (start) {
+			executor.execute(task::start);
+		}
+		return task;
+	}
+
+	private void release(int bytes) {
+		List<CopyTask> ready = new ArrayList<>();
+		synchronized (lock) {
+			available += bytes;
+			while (!waiting.isEmpty() && available >= waiting.peek().reserved) {
+				CopyTask task = waiting.poll();
+				available -= task.reserved;
+				ready.add(task);
+			}
+		}
+		for (CopyTask task : ready) {
+			executor.execute(task::start);
+		}
+	}
+
+	private boolean removeWaiting(CopyTask task) {
+		synchronized (lock) {
+			return waiting.remove(task);
+		}
+	}
+
+	@Override
+	public void close() {
+		// Running copies are not waited for: call this once their futures are completed.
+		executor.shutdown();
+	}
+
+	public class CopyTask {
+		private final Path source;
+		private final Path target;
+		private final ProgressListener listener;
+		private final CompletableFuture<Long> result = new CompletableFuture<>();
+		private final AtomicBoolean done = new AtomicBoolean();
+		private volatile boolean cancelled;
+		private int reserved;
+		private AsynchronousFileChannel in;
+		private AsynchronousFileChannel out;
+		private ByteBuffer buffer;
+		private long total;
+		private long position;
+
+		private CopyTask(Path source, Path target, ProgressListener listener) {
+			this.source = source;
+			this.target = target;
+			this.listener = listener;
+		}
+
+		public Path getSource() {
+			return source;
+		}
+
+		public Path getTarget() {
+			return target;
+		}
+
+		// Completed with the number of bytes copied
+		public CompletableFuture<Long> future() {
+			return result;
+		}
+
+		public void cancel() {
+			cancelled = true;
+			if (removeWaiting(this)) {
+				// never started: nothing to close nor release
+				done.set(true);
+				result.completeExceptionally(new CancellationException("Copy cancelled: " + source));
+			}
+		}
+
+		private void start() {
+			try {
+				if (cancelled) {
+					throw new CancellationException("Copy cancelled: " + source);
+				}
+				in = AsynchronousFileChannel.open(source, options(StandardOpenOption.READ), executor);
+				out = AsynchronousFileChannel.open(target, options(StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING), executor);
+				total = in.size();
+				buffer = ByteBuffer.allocateDirect(reserved);
+				read();
+			} catch (IOException | RuntimeException e) {
+				fail(e);
+			}
+		}
+
+		private void read() {
+			if (cancelled) {
+				fail(new CancellationException("Copy cancelled: " + source));
+				return;
+			}
+			buffer.clear();
+			in.read(buffer, position, null, new CompletionHandler<Integer, Void>() {
+				public void completed(Integer read, Void attachment) {
+					if (read == -1) {
+						finish();
+					} else {
+						buffer.flip();
+						write();
+					}
+				}
+
+				public void failed(Throwable e, Void attachment) {
+					fail(e);
+				}
+			});
+		}
+
+		private void write() {
+			out.write(buffer, position, null, new CompletionHandler<Integer, Void>() {
+				public void completed(Integer written, Void attachment) {
+					position += written;
+					if (buffer.hasRemaining()) {
+						write(); // partial write
+						return;
+					}
+					try {
+						listener.onProgress(source, position, total);
+					} catch (RuntimeException e) {
+						fail(e);
+						return;
+					}
+					read();
+				}
+
+				public void failed(Throwable e, Void attachment) {
+					fail(e);
+				}
+			});
+		}
+
+		private void finish() {
+			if (done.compareAndSet(false, true)) {
+				try {
+					closeChannels();
+				} catch (IOException e) {
+					result.completeExceptionally(e);
+					return;
+				} finally {
+					release(reserved);
+				}
+				result.complete(position);
+			}
+		}
+
+		private void fail(Throwable e) {
+			if (done.compareAndSet(false, true)) {
+				try {
+					closeChannels();
+					if (out != null) {
+						Files.deleteIfExists(target); // only if this task created or truncated it
+					}
+				} catch (IOException suppressed) {
+					e.addSuppressed(suppressed);
+				} finally {
+					release(reserved);
+				}
+				result.completeExceptionally(e);
+			}
+		}
+
+		private void closeChannels() throws IOException {
+			try {
+				if (in != null) {
+					in.close();
+				}
+			} finally {
+				if (out != null) {
+					out.close();
+				}
+			}
+		}
+	}
+
+	private static HashSet<OpenOption> options(OpenOption... options) {
+		return new HashSet<>(Arrays.asList(options));
+	}
+}
@@ -0,0 +1,166 @@
+package java8.OCP.C9_NIO_2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BulkAttributes {
+	// Files.getLastModifiedTime(), setLastModifiedTime(), getOwner() and setOwner() work on one file:
+	// over many files the time goes in waiting for the file system, one call after the other.
+	// apply() runs an operation on every path with 'parallelism' threads and collects, for every path,
+	// its result or its error: a failure does not stop the other paths.
+	// The threads take the next path from a shared index, so there is no task per path
+	// (a pass over 500k files does not create 500k Futures).
+	// Several operations on the same file are combined with andThen(): one task per file, e.g.
+	//    apply(paths, 16, setLastModifiedTime(now).andThen(setOwner(owner)))
+	// Look up the UserPrincipal once (UserPrincipalLookupService), not for every file.
+	// The results are by path: a path that is more than once in the collection is processed once.
+
+	@FunctionalInterface
+	public interface AttributeOperation<R> {
+		R apply(Path path) throws IOException;
+
+		// Runs this operation, then the next one on the same path. The result is the one of next.
+		default <S> AttributeOperation<S> andThen(AttributeOperation<S> next) {
+			return path -> {
+				apply(path);
+				return next.apply(path);
+			};
+		}
+	}
+
+	public static AttributeOperation<FileTime> getLastModifiedTime() {
+		return Files::getLastModifiedTime;
+	}
+
+	public static AttributeOperation<FileTime> setLastModifiedTime(FileTime time) {
+		return path -> {
+			Files.setLastModifiedTime(path, time);
+			return time;
+		};
+	}
+
+	public static AttributeOperation<UserPrincipal> getOwner() {
+		return Files::getOwner;
+	}
+
+	public static AttributeOperation<UserPrincipal> setOwner(UserPrincipal owner) {
+		return path -> {
+			Files.setOwner(path, owner);
+			return owner;
+		};
+	}
+
+	public static AttributeOperation<BasicFileAttributes> readAttributes() {
+		// all the basic attributes in a single call
+		return path -> Files.readAttributes(path, BasicFileAttributes.class);
+	}
+
+	public static AttributeOperation<FileTime> setTimes(FileTime lastModifiedTime, FileTime lastAccessTime,
+			FileTime createTime) {
+		// null leaves that time unchanged, like BasicFileAttributeView.setTimes()
+		return path -> {
+			Files.getFileAttributeView(path, BasicFileAttributeView.class).setTimes(lastModifiedTime, lastAccessTime,
+					createTime);
+			return lastModifiedTime;
+		};
+	}
+
+	public static class Result<R> {
+		private final Map<Path, R> values = new ConcurrentHashMap<>();
+		private final Map<Path, IOException> errors = new ConcurrentHashMap<>();
+		private final AtomicInteger nullValues = new AtomicInteger();
+
+		// The paths that succeeded, with their result (operations returning null are only counted)
+		public Map<Path, R> getValues() {
+			return Collections.unmodifiableMap(values);
+		}
+
+		public Map<Path, IOException> getErrors() {
+			return Collections.unmodifiableMap(errors);
+		}
+
+		public int getSucceeded() {
+			return values.size() + nullValues.get();
+		}
+
+		public boolean isSuccessful() {
+			return errors.isEmpty();
+		}
+
+		public String toString() {
+			return getSucceeded() + " succeeded, " + errors.size() + " failed";
+		}
+	}
+
+	public static <R> Result<R> apply(Collection<Path> paths, int parallelism, AttributeOperation<R> operation)
+			throws InterruptedException {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+		}
+		// An ArrayList (list.get(index) of a LinkedList would be O(n)) without duplicates:
+		// the results are by path, so a path is processed only once
+		List<Path> list = new ArrayList<>(paths instanceof Set ? paths : new LinkedHashSet<>(paths));
+		Result<R> result = new Result<>();
+		AtomicInteger next = new AtomicInteger();
+		int threads = Math.max(1, Math.min(parallelism, list.size()));
+		ExecutorService service = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> workers = new ArrayList<>(threads);
+			for (int i = 0; i < threads; i++) {
+				workers.add(service.submit(() -> {
+					int index;
+					while ((index = next.getAndIncrement()) < list.size() && !Thread.currentThread().isInterrupted()) {
+						Path path = list.get(index);
+						apply(path, operation, result);
+					}
+				}));
+			}
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+		} catch (ExecutionException e) {
+			// apply(path, ...) catches every exception of the operation: only an Error gets here
+			throw (Error) e.getCause();
+		} finally {
+			service.shutdownNow();
+		}
+		return result;
+	}
+
+	private static <R> void apply(Path path, AttributeOperation<R> operation, Result<R> result) {
+		try {
+			R value = operation.apply(path);
+			if (value != null) {
+				result.values.put(path, value);
+			} else {
+				result.nullValues.incrementAndGet();
+			}
+		} catch (IOException e) {
+			result.errors.put(path, e);
+		} catch (UncheckedIOException e) {
+			result.errors.put(path, e.getCause());
+		} catch (RuntimeException e) {
+			// e.g. UnsupportedOperationException: setOwner() on a file system without owners
+			result.errors.put(path, new IOException(path + ": " + e, e));
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package java8.OCP.C9_NIO_2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ByteGrep {
+	// Files.lines(path).filter(s -> s.startsWith("WARN ")) decodes every line into a String
+	// only to test a few bytes. This search compares the bytes of the memory-mapped file with
+	// the encoded pattern, and only the matching lines are decoded into Strings.
+	// The file is split by ChunkedLineReader into newline-aligned chunks searched in parallel.
+	// The result keeps the order of the file.
+	// Substrings are searched with Boyer-Moore-Horspool: most bytes of a line are skipped, not compared.
+	// The bytes of the pattern can only be compared if they cannot match in the middle of a char:
+	// true for UTF-8 (self-synchronizing), US-ASCII and ISO-8859-1 (one byte per char), but not for
+	// GBK or Shift_JIS, where the second byte of a char can be an ASCII byte. For the other charsets it
+	// falls back to Files.lines() and String methods.
+	// The line terminators are the ones of BufferedReader.readLine(), but a lone '\r' does not end a line.
+
+	public static List<String> linesStartingWith(Path path, String prefix) throws IOException {
+		return linesStartingWith(path, prefix, StandardCharsets.UTF_8);
+	}
+
+	public static List<String> linesStartingWith(Path path, String prefix, Charset charset) throws IOException {
+		if (!isByteSearchable(charset)) {
+			try (Stream<String> lines = Files.lines(path, charset)) {
+				return lines.filter(s -> s.startsWith(prefix)).collect(Collectors.toList());
+			}
+		}
+		return search(path, prefix.getBytes(charset), true, charset);
+	}
+
+	public static List<String> linesContaining(Path path, String literal) throws IOException {
+		return linesContaining(path, literal, StandardCharsets.UTF_8);
+	}
+
+	public static List<String> linesContaining(Path path, String literal, Charset charset) throws IOException {
+		if (!isByteSearchable(charset)) {
+			try (Stream<String> lines = Files.lines(path, charset)) {
+				return lines.filter(s -> s.contains(literal)).collect(Collectors.toList());
+			}
+		}
+		return search(path, literal.getBytes(charset), false, charset);
+	}
+
+	public static long countLinesContaining(Path path, String literal) throws IOException {
+		// No String at all
+		byte[] pattern = literal.getBytes(StandardCharsets.UTF_8);
+		AtomicLong count = new AtomicLong();
+		ChunkedLineReader.forEachChunk(path, (chunk, position) -> {
+			long found = 0;
+			int[] skip = skipTable(pattern);
+			for (int i = 0; (i = indexOf(chunk, pattern, skip, i)) != -1; found++) {
+				i = lineEnd(chunk, i) + 1;
+			}
+			count.addAndGet(found);
+		});
+		return count.get();
+	}
+
+	static boolean isByteSearchable(Charset charset) {
+		return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+				|| charset.equals(StandardCharsets.ISO_8859_1);
+	}
+
+	private static List<String> search(Path path, byte[] pattern, boolean prefix, Charset charset)
+			throws IOException {
+		Map<Long, List<String>> matches = new ConcurrentSkipListMap<>(); // sorted by chunk position
+		ChunkedLineReader.forEachChunk(path, (chunk, position) -> {
+			List<String> lines = new ArrayList<>();
+			if (prefix) {
+				for (int start = 0; start < chunk.limit(); ) {
+					int end = lineEnd(chunk, start);
+					if (startsWith(chunk, start, end, pattern)) {
+						lines.add(line(chunk, start, end, charset));
+					}
+					start = end + 1;
+				}
+			} else {
+				int[] skip = skipTable(pattern);
+				for (int i = 0; (i = indexOf(chunk, pattern, skip, i)) != -1; ) {
+					int end = lineEnd(chunk, i);
+					lines.add(line(chunk, lineStart(chunk, i), end, charset));
+					i = end + 1; // one match per line
+				}
+			}
+			if (!lines.isEmpty()) {
+				matches.put(position, lines);
+			}
+		});
+		List<String> result = new ArrayList<>();
+		for (List<String> lines : matches.values()) {
+			result.addAll(lines);
+		}
+		return result;
+	}
+
+	private static boolean startsWith(ByteBuffer chunk, int start, int end, byte[] pattern) {
+		if (end - start < pattern.length) {
+			return false;
+		}
+		for (int i = 0; i < pattern.length; i++) {
+			if (chunk.get(start + i) != pattern[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int[] skipTable(byte[] pattern) {
+		// Horspool: how far the window can move when its last byte is b
+		int[] skip = new int[256];
+		for (int i = 0; i < skip.length; i++) {
+			skip[i] = Math.max(1, pattern.length);
+		}
+		for (int i = 0; i < pattern.length - 1; i++) {
+			skip[pattern[i] & 0xFF] = pattern.length - 1 - i;
+		}
+		return skip;
+	}
+
+	static int indexOf(ByteBuffer chunk, byte[] pattern, int[] skip, int from) {
+		int limit = chunk.limit();
+		if (pattern.length == 0) {
+			return from < limit ? from : -1;
+		}
+		int last = pattern.length - 1;
+		for (int i = from; i + last < limit; ) {
+			byte b = chunk.get(i + last);
+			if (b == pattern[last]) {
+				int j = last - 1;
+				while (j >= 0 && chunk.get(i + j) == pattern[j]) {
+					j--;
+				}
+				if (j < 0) {
+					return i;
+				}
+			}
+			i += skip[b & 0xFF];
+		}
+		return -1;
+	}
+
+	private static int lineStart(ByteBuffer chunk, int index) {
+		while (index > 0 && chunk.get(index - 1) != '\n') {
+			index--;
+		}
+		return index;
+	}
+
+	private static int lineEnd(ByteBuffer chunk, int index) {
+		// index of the '\n', or the limit for the last line without one
+		int limit = chunk.limit();
+		while (index < limit && chunk.get(index) != '\n') {
+			index++;
+		}
+		return index;
+	}
+
+	private static String line(ByteBuffer chunk, int start, int end, Charset charset) {
+		if (end > start && chunk.get(end - 1) == '\r') {
+			end--;
+		}
+		byte[] bytes = new byte[end - start];
+		ByteBuffer view = chunk.duplicate();
+		view.position(start);
+		view.get(bytes);
+		return new String(bytes, charset);
+	}
+}
@@ -0,0 +1,172 @@
+package java8.OCP.C9_NIO_2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import java8.OCP.C8_IO.IO;
+
+public class ChunkedLineReader {
+	// Files.lines() reads the file on a single thread: a parallel() pipeline only parallelizes
+	// the work done after each line has been read and decoded.
+	// This reader splits the file into byte ranges that end just after a '\n', so every range holds
+	// complete lines. Every range is mapped and decoded by its own ForkJoin worker (parallel stream).
+	// Only charsets where '\n' is the single byte 0x0A can be split this way (UTF-8, ASCII, ISO-8859-1...).
+	// For other charsets (UTF-16...) lines() falls back to Files.lines().
+
+	public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+	private static final int PROBE_SIZE = 4096;
+
+	// Receives a newline-aligned range of the file as read-only bytes, without creating any String.
+	// The buffer is unmapped when accept() returns, so it must not be kept.
+	@FunctionalInterface
+	public interface ChunkHandler {
+		void accept(ByteBuffer chunk, long position);
+	}
+
+	static class Chunk {
+		final long start;
+		final long end;
+
+		Chunk(long start, long end) {
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	public static Stream<String> lines(Path path) throws IOException {
+		// Same default charset as Files.lines()
+		return lines(path, StandardCharsets.UTF_8, DEFAULT_CHUNK_SIZE);
+	}
+
+	public static Stream<String> lines(Path path, Charset charset, int chunkSize) throws IOException {
+		// The stream is parallel and ordered, and must be closed to close the file.
+		if (!isNewlineSingleByte(charset)) {
+			return Files.lines(path, charset);
+		}
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		List<Chunk> chunks;
+		try {
+			chunks = split(channel, chunkSize);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return chunks.parallelStream().flatMap(chunk -> decode(channel, chunk, charset).stream()).onClose(() -> {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	public static void forEachChunk(Path path, ChunkHandler handler) throws IOException {
+		forEachChunk(path, DEFAULT_CHUNK_SIZE, handler);
+	}
+
+	public static void forEachChunk(Path path, int chunkSize, ChunkHandler handler) throws IOException {
+		// The handler is called concurrently from the ForkJoin workers, in no particular order.
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			split(channel, chunkSize).parallelStream().forEach(chunk -> {
+				MappedByteBuffer buffer = map(channel, chunk);
+				try {
+					handler.accept(buffer, chunk.start);
+				} finally {
+					IO.unmap(buffer);
+				}
+			});
+		}
+	}
+
+	static List<Chunk> split(FileChannel channel, int chunkSize) throws IOException {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+		}
+		long size = channel.size();
+		List<Chunk> chunks = new ArrayList<>();
+		ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+		long start = 0;
+		while (start < size) {
+			long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize, size, probe);
+			chunks.add(new Chunk(start, end));
+			start = end;
+		}
+		return chunks;
+	}
+
+	private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer probe)
+			throws IOException {
+		// Reads forward from position until a '\n' is found. A line longer than the chunk just makes it bigger.
+		while (position < size) {
+			probe.clear();
+			int read = channel.read(probe, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (probe.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, Chunk chunk) {
+		try {
+			return channel.map(MapMode.READ_ONLY, chunk.start, chunk.end - chunk.start);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static List<String> decode(FileChannel channel, Chunk chunk, Charset charset) {
+		MappedByteBuffer buffer = map(channel, chunk);
+		CharBuffer chars;
+		try {
+			// The decoder reports malformed input, like Files.lines() does.
+			chars = charset.newDecoder().decode(buffer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			IO.unmap(buffer);
+		}
+		// Same line terminators as BufferedReader.readLine(): "\n", "\r" or "\r\n".
+		List<String> lines = new ArrayList<>();
+		int start = 0;
+		int length = chars.length();
+		for (int i = 0; i < length; i++) {
+			char c = chars.charAt(i);
+			if (c == '\n' || c == '\r') {
+				lines.add(chars.subSequence(start, i).toString());
+				if (c == '\r' && i + 1 < length && chars.charAt(i + 1) == '\n') {
+					i++;
+				}
+				start = i + 1;
+			}
+		}
+		if (start < length) {
+			lines.add(chars.subSequence(start, length).toString());
+		}
+		return lines;
+	}
+
+	static boolean isNewlineSingleByte(Charset charset) {
+		byte[] newline = "\n".getBytes(charset);
+		return newline.length == 1 && newline[0] == '\n';
+	}
+}
@@ -0,0 +1,200 @@
+package java8.OCP.C9_NIO_2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ContentDeduplicator {
+	// Files.isSameFile() tells if two paths are the same file (same fileKey), not if two files
+	// have the same content. This class finds the regular files of a tree with the same content
+	// and replaces the duplicates with hard links to one of them (same content, stored once).
+	//    1. walk the tree with the attributes (no second stat),
+	//    2. only files with the same size can be equal: sizes with a single file are never read,
+	//       and paths that are already the same file (hard links, same fileKey) are read once,
+	//    3. the candidates are hashed (SHA-256) in parallel,
+	//    4. every duplicate is replaced by a hard link, created with a unique temporary name in the same
+	//       directory and moved over it atomically, so the path never disappears. A file whose size or
+	//       lastModifiedTime changed since the walk is not replaced (it is in the errors of the report).
+	// Hard links only work inside a file store: the failures are in the report, not thrown.
+	// Empty files are ignored, there is nothing to reclaim.
+
+	public static class Report {
+		private final Map<String, List<Path>> duplicates = new LinkedHashMap<>();
+		private final Map<Path, IOException> errors = new ConcurrentHashMap<>();
+		private long hashedFiles;
+		private long linkedFiles;
+		private long reclaimedBytes;
+
+		// size:hash -> one path of every file with that content, the first one is kept
+		public Map<String, List<Path>> getDuplicates() {
+			return Collections.unmodifiableMap(duplicates);
+		}
+
+		public Map<Path, IOException> getErrors() {
+			return Collections.unmodifiableMap(errors);
+		}
+
+		public long getHashedFiles() {
+			return hashedFiles;
+		}
+
+		public long getLinkedFiles() {
+			return linkedFiles;
+		}
+
+		public long getReclaimedBytes() {
+			return reclaimedBytes;
+		}
+
+		public String toString() {
+			return duplicates.size() + " groups of duplicates, " + linkedFiles + " files replaced by hard links, "
+					+ reclaimedBytes + " bytes reclaimed (" + hashedFiles + " files hashed, " + errors.size()
+					+ " errors)";
+		}
+	}
+
+	public static Report find(Path root, int parallelism) throws IOException {
+		// Only the report: nothing is changed
+		return deduplicate(root, parallelism, true);
+	}
+
+	public static Report deduplicate(Path root, int parallelism) throws IOException {
+		return deduplicate(root, parallelism, false);
+	}
+
+	private static Report deduplicate(Path root, int parallelism, boolean dryRun) throws IOException {
+		Report report = new Report();
+		// size -> fileKey -> paths
+		Map<Long, Map<Object, List<ParallelFileWalker.Entry>>> bySize = new HashMap<>();
+		try (Stream<ParallelFileWalker.Entry> entries = ParallelFileWalker.walkWithAttributes(root)) {
+			for (ParallelFileWalker.Entry entry : entries.filter(e -> e.getAttributes().isRegularFile()
+					&& e.getAttributes().size() > 0).collect(Collectors.toList())) {
+				Object key = entry.getAttributes().fileKey() != null ? entry.getAttributes().fileKey() : entry.getPath();
+				bySize.computeIfAbsent(entry.getAttributes().size(), s -> new HashMap<>())
+						.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		List<Path> candidates = new ArrayList<>();
+		Map<Path, List<ParallelFileWalker.Entry>> links = new HashMap<>(); // candidate -> paths of the same file
+		for (Map<Object, List<ParallelFileWalker.Entry>> sameSize : bySize.values()) {
+			if (sameSize.size() > 1) {
+				for (List<ParallelFileWalker.Entry> sameFile : sameSize.values()) {
+					Path candidate = sameFile.get(0).getPath(); // the other paths are already links to it
+					candidates.add(candidate);
+					links.put(candidate, sameFile);
+				}
+			}
+		}
+		Map<Path, String> hashes = new ConcurrentHashMap<>();
+		TreeOperations.runInParallel(candidates, parallelism, path -> {
+			try {
+				hashes.put(path, hash(path));
+			} catch (IOException e) {
+				report.errors.put(path, e);
+			}
+		});
+		report.hashedFiles = hashes.size();
+		Map<String, List<Path>> byContent = new TreeMap<>();
+		for (Map.Entry<Path, String> hash : hashes.entrySet()) {
+			long size = links.get(hash.getKey()).get(0).getAttributes().size();
+			byContent.computeIfAbsent(size + ":" + hash.getValue(), h -> new ArrayList<>()).add(hash.getKey());
+		}
+		for (Map.Entry<String, List<Path>> group : byContent.entrySet()) {
+			List<Path> paths = group.getValue();
+			if (paths.size() < 2) {
+				continue;
+			}
+			Collections.sort(paths);
+			report.duplicates.put(group.getKey(), paths);
+			ParallelFileWalker.Entry kept = links.get(paths.get(0)).get(0);
+			for (Path duplicate : paths.subList(1, paths.size())) {
+				// every path of the duplicate file must be linked, or its space is not reclaimed
+				boolean reclaimed = true;
+				for (ParallelFileWalker.Entry link : links.get(duplicate)) {
+					if (!dryRun) {
+						try {
+							link(kept, link);
+						} catch (IOException | UnsupportedOperationException e) {
+							report.errors.put(link.getPath(),
+									e instanceof IOException ? (IOException) e : new IOException(e));
+							reclaimed = false;
+							continue;
+						}
+					}
+					report.linkedFiles++;
+				}
+				if (reclaimed) {
+					report.reclaimedBytes += links.get(duplicate).get(0).getAttributes().size();
+				}
+			}
+		}
+		return report;
+	}
+
+	private static void link(ParallelFileWalker.Entry kept, ParallelFileWalker.Entry duplicate) throws IOException {
+		// Both files must be as they were when they were hashed
+		checkUnchanged(kept);
+		checkUnchanged(duplicate);
+		// A unique name: createTempFile() creates the file, it is deleted to create the link with its name
+		Path directory = duplicate.getPath().toAbsolutePath().getParent();
+		Path temporary = Files.createTempFile(directory, ".dedup", ".tmp");
+		Files.delete(temporary);
+		Files.createLink(temporary, kept.getPath());
+		try {
+			Files.move(temporary, duplicate.getPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Files.delete(temporary); // the link created above
+			throw e;
+		}
+	}
+
+	private static void checkUnchanged(ParallelFileWalker.Entry entry) throws IOException {
+		BasicFileAttributes now = Files.readAttributes(entry.getPath(), BasicFileAttributes.class,
+				LinkOption.NOFOLLOW_LINKS);
+		BasicFileAttributes walked = entry.getAttributes();
+		if (now.size() != walked.size() || !now.lastModifiedTime().equals(walked.lastModifiedTime())) {
+			throw new IOException(entry.getPath() + ": modified since it was hashed");
+		}
+	}
+
+	static String hash(Path file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is required in every JVM", e);
+		}
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = Files.newInputStream(file)) {
+			int lengthRead;
+			while ((lengthRead = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, lengthRead);
+			}
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+}
@@ -0,0 +1,335 @@
+package java8.OCP.C9_NIO_2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import java8.OCP.C8_IO.BinaryInput;
+import java8.OCP.C8_IO.BinaryOutput;
+
+public class DirectoryIndex {
+	// Index of a directory tree (path, size, lastModifiedTime, fileKey) that can be saved to disk
+	// and rescanned incrementally instead of walking the whole tree again.
+	// Adding, removing or renaming an entry changes the lastModifiedTime of its directory, so
+	// a directory with the same lastModifiedTime (and fileKey) as in the index is not listed again:
+	// only its subdirectories are checked, because a change deeper in the tree does not update it.
+	// Rewriting a file in place does not change its directory: those changes are only found
+	// with verifyFiles, which reads the attributes of the files of the unchanged directories.
+	// Symbolic links are not followed. Paths are stored relative to the root.
+	// A rescan works on a copy of the index, kept only if it succeeds: after an exception (a directory
+	// that cannot be read) the index is unchanged and the next rescan finds the same changes again.
+	// On disk: GZIP of the BinaryOutput encoding (varint lengths, varlong sizes and times).
+
+	private static final int MAGIC = 0x44495831; // "DIX1"
+
+	public enum ChangeType {
+		ADDED, MODIFIED, DELETED
+	}
+
+	public static class Entry {
+		private final String path;
+		private final boolean directory;
+		private final long size;
+		private final long lastModified;
+		private final String fileKey;
+
+		Entry(String path, boolean directory, long size, long lastModified, String fileKey) {
+			this.path = path;
+			this.directory = directory;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.fileKey = fileKey;
+		}
+
+		static Entry of(String path, BasicFileAttributes attributes) {
+			Object key = attributes.fileKey();
+			return new Entry(path, attributes.isDirectory(), attributes.isDirectory() ? 0 : attributes.size(),
+					attributes.lastModifiedTime().toMillis(), key == null ? null : key.toString());
+		}
+
+		public String getPath() { // relative to the root
+			return path;
+		}
+
+		public boolean isDirectory() {
+			return directory;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public String getFileKey() { // null if the file system has none
+			return fileKey;
+		}
+
+		boolean sameAs(Entry other) {
+			return directory == other.directory && size == other.size && lastModified == other.lastModified
+					&& Objects.equals(fileKey, other.fileKey);
+		}
+
+		public String toString() {
+			return path + (directory ? "/" : " " + size) + " " + lastModified;
+		}
+	}
+
+	public static class Change {
+		private final ChangeType type;
+		private final Entry entry;
+
+		Change(ChangeType type, Entry entry) {
+			this.type = type;
+			this.entry = entry;
+		}
+
+		public ChangeType getType() {
+			return type;
+		}
+
+		public Entry getEntry() { // the old entry if DELETED, the new one otherwise
+			return entry;
+		}
+
+		public String toString() {
+			return type + " " + entry;
+		}
+	}
+
+	private final Path root;
+	private Map<String, Entry> entries = new HashMap<>();
+	private Map<String, Set<String>> children = new HashMap<>();
+
+	public DirectoryIndex(Path root) {
+		this.root = root;
+	}
+
+	public Path getRoot() {
+		return root;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public Entry get(String path) {
+		return entries.get(path);
+	}
+
+	public Stream<Change> rescan() throws IOException {
+		return rescan(false);
+	}
+
+	public Stream<Change> rescan(boolean verifyFiles) throws IOException {
+		// The first scan returns every path as ADDED. The index is updated with the changes.
+		List<Change> changes = new ArrayList<>();
+		BasicFileAttributes attributes = Files.readAttributes(root, BasicFileAttributes.class,
+				LinkOption.NOFOLLOW_LINKS);
+		Map<String, Entry> savedEntries = entries;
+		Map<String, Set<String>> savedChildren = children;
+		entries = new HashMap<>(savedEntries);
+		children = new HashMap<>(savedChildren.size() * 4 / 3 + 1);
+		for (Map.Entry<String, Set<String>> directory : savedChildren.entrySet()) {
+			children.put(directory.getKey(), new LinkedHashSet<>(directory.getValue()));
+		}
+		boolean scanned = false;
+		try {
+			scanDirectory("", root, Entry.of("", attributes), verifyFiles, changes);
+			scanned = true;
+		} finally {
+			if (!scanned) {
+				entries = savedEntries;
+				children = savedChildren;
+			}
+		}
+		return changes.stream();
+	}
+
+	// false if the directory was deleted while scanning
+	private boolean scanDirectory(String path, Path directory, Entry current, boolean verifyFiles,
+			List<Change> changes) throws IOException {
+		Entry indexed = entries.get(path);
+		if (indexed != null && indexed.sameAs(current)) {
+			// same listing as in the index
+			entries.put(path, current);
+			for (String child : new ArrayList<>(children(path))) {
+				Entry old = entries.get(child);
+				if (old.isDirectory() || verifyFiles) {
+					check(child, old, verifyFiles, changes);
+				}
+			}
+			return true;
+		}
+		DirectoryStream<Path> opened;
+		try {
+			opened = Files.newDirectoryStream(directory);
+		} catch (NoSuchFileException e) {
+			if (path.isEmpty()) {
+				throw e;
+			}
+			delete(path, changes); // listed in its parent, deleted since
+			return false;
+		}
+		if (indexed == null && !path.isEmpty()) {
+			changes.add(new Change(ChangeType.ADDED, current));
+		}
+		Set<String> removed = new LinkedHashSet<>(children(path));
+		Set<String> listed = new LinkedHashSet<>();
+		try (DirectoryStream<Path> stream = opened) {
+			for (Path child : stream) {
+				String childPath = root.relativize(child).toString();
+				listed.add(childPath);
+				removed.remove(childPath);
+				BasicFileAttributes attributes;
+				try {
+					attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+				} catch (NoSuchFileException e) {
+					listed.remove(childPath); // deleted while listing
+					continue;
+				}
+				if (!update(childPath, entries.get(childPath), Entry.of(childPath, attributes), verifyFiles, changes)) {
+					listed.remove(childPath);
+				}
+			}
+		}
+		for (String child : removed) {
+			delete(child, changes);
+		}
+		children.put(path, listed);
+		// only once it is listed: the mtime of a directory that could not be listed is not saved
+		entries.put(path, current);
+		return true;
+	}
+
+	private void check(String path, Entry old, boolean verifyFiles, List<Change> changes) throws IOException {
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(root.resolve(path), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		} catch (NoSuchFileException e) {
+			// its directory has not changed, so it was replaced in the middle of the scan
+			delete(path, changes);
+			children(parent(path)).remove(path);
+			return;
+		}
+		if (!update(path, old, Entry.of(path, attributes), verifyFiles, changes)) {
+			children(parent(path)).remove(path);
+		}
+	}
+
+	// false if it was deleted while scanning
+	private boolean update(String path, Entry old, Entry current, boolean verifyFiles, List<Change> changes)
+			throws IOException {
+		if (old != null && old.isDirectory() != current.isDirectory()) {
+			delete(path, changes); // a file replaced by a directory or the other way around
+			old = null;
+		}
+		if (current.isDirectory()) {
+			return scanDirectory(path, root.resolve(path), current, verifyFiles, changes); // ADDED if new
+		} else {
+			if (old == null) {
+				changes.add(new Change(ChangeType.ADDED, current));
+			} else if (!old.sameAs(current)) {
+				changes.add(new Change(ChangeType.MODIFIED, current));
+			}
+			entries.put(path, current);
+			return true;
+		}
+	}
+
+	private void delete(String path, List<Change> changes) {
+		Entry old = entries.remove(path);
+		if (old == null) {
+			return;
+		}
+		Set<String> removed = children.remove(path);
+		if (removed != null) {
+			for (String child : removed) {
+				delete(child, changes);
+			}
+		}
+		changes.add(new Change(ChangeType.DELETED, old));
+	}
+
+	private Set<String> children(String path) {
+		return children.computeIfAbsent(path, p -> new LinkedHashSet<>());
+	}
+
+	private String parent(String path) {
+		Path parent = Paths.get(path).getParent();
+		return parent == null ? "" : parent.toString();
+	}
+
+	public void save(Path file) throws IOException {
+		// Written to a temporary file and moved, so a crash never leaves a truncated index.
+		BinaryOutput out = new BinaryOutput(64 * 1024);
+		out.writeVarInt(MAGIC);
+		out.writeString(root.toString());
+		out.writeVarInt(entries.size());
+		for (Entry entry : entries.values()) {
+			out.writeString(entry.path);
+			out.writeByte(entry.directory ? 1 : 0);
+			out.writeVarLong(entry.size);
+			out.writeSignedVarLong(entry.lastModified);
+			out.writeString(entry.fileKey);
+		}
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (OutputStream stream = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			out.writeTo(stream);
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public static DirectoryIndex load(Path file) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (InputStream stream = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			byte[] buffer = new byte[64 * 1024];
+			int lengthRead;
+			while ((lengthRead = stream.read(buffer)) > 0) {
+				bytes.write(buffer, 0, lengthRead);
+			}
+		}
+		try {
+			BinaryInput in = new BinaryInput(bytes.toByteArray());
+			if (in.readVarInt() != MAGIC) {
+				throw new IOException("Not a directory index: " + file);
+			}
+			DirectoryIndex index = new DirectoryIndex(Paths.get(in.readString()));
+			int count = in.readVarInt();
+			for (int i = 0; i < count; i++) {
+				Entry entry = new Entry(in.readString(), in.readByte() == 1, in.readVarLong(), in.readSignedVarLong(),
+						in.readString());
+				index.entries.put(entry.path, entry);
+				if (!entry.path.isEmpty()) {
+					index.children(index.parent(entry.path)).add(entry.path);
+				}
+			}
+			return index;
+		} catch (IllegalStateException e) {
+			throw new IOException("Corrupted directory index: " + file, e);
+		}
+	}
+}
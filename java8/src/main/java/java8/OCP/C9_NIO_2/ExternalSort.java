@@ -0,0 +1,237 @@
+package java8.OCP.C9_NIO_2;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+public class ExternalSort {
+	// Sorts the lines of a text file that does not fit in memory
+	// (Files.readAllLines() + Collections.sort() need the whole file in the heap).
+	//    1. Runs: the input is read in chunks of about runBytes of Strings; every chunk is sorted
+	//       and written to a temporary file (a run) by a pool of 'parallelism' threads while the
+	//       next chunk is read. At most parallelism + 1 chunks are in memory.
+	//    2. Merge: the runs are merged with a PriorityQueue (a heap) of the first line of every run,
+	//       at most MERGE_WIDTH runs at the same time, each one with a buffer of BUFFER_SIZE chars.
+	//       With more runs, groups of MERGE_WIDTH are merged first into bigger runs (several passes).
+	// The sort is stable: equal lines keep the order of the input.
+	// Every line of the output ends with '\n'. The runs are written in a temporary directory
+	// (by default next to the output, so on the same file store) and deleted at the end.
+
+	public static final long DEFAULT_RUN_BYTES = 64 * 1024 * 1024;
+	static final int MERGE_WIDTH = 128;
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Comparator<String> comparator;
+	private final long runBytes;
+	private final int parallelism;
+
+	public ExternalSort(Comparator<String> comparator) {
+		this(comparator, DEFAULT_RUN_BYTES, Runtime.getRuntime().availableProcessors());
+	}
+
+	public ExternalSort(Comparator<String> comparator, long runBytes, int parallelism) {
+		if (runBytes <= 0 || parallelism <= 0) {
+			throw new IllegalArgumentException("runBytes and parallelism must be positive");
+		}
+		this.comparator = comparator;
+		this.runBytes = runBytes;
+		this.parallelism = parallelism;
+	}
+
+	// Returns the number of lines
+	public long sort(Path input, Path output, Charset charset) throws IOException {
+		Path parent = output.toAbsolutePath().getParent();
+		return sort(input, output, charset, parent);
+	}
+
+	public long sort(Path input, Path output, Charset charset, Path tempDirectory) throws IOException {
+		Path directory = Files.createTempDirectory(tempDirectory, "sort");
+		ExecutorService service = Executors.newFixedThreadPool(parallelism);
+		try {
+			List<Future<Path>> runs = new ArrayList<>();
+			long lines = writeRuns(input, charset, directory, service, runs);
+			List<Path> files = new ArrayList<>();
+			for (Future<Path> run : runs) {
+				files.add(run.get());
+			}
+			while (files.size() > MERGE_WIDTH) {
+				files = mergePass(files, charset, directory, service);
+			}
+			merge(files, output, charset);
+			return lines;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			service.shutdownNow();
+			deleteRuns(directory);
+		}
+	}
+
+	private long writeRuns(Path input, Charset charset, Path directory, ExecutorService service,
+			List<Future<Path>> runs) throws IOException, InterruptedException {
+		Semaphore chunks = new Semaphore(parallelism); // chunks being sorted and written
+		long lines = 0;
+		try (BufferedReader reader = Files.newBufferedReader(input, charset)) {
+			List<String> chunk = new ArrayList<>();
+			long bytes = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				chunk.add(line);
+				lines++;
+				bytes += size(line);
+				if (bytes >= runBytes) {
+					runs.add(submitRun(chunk, charset, directory, service, chunks, runs.size()));
+					chunk = new ArrayList<>();
+					bytes = 0;
+				}
+			}
+			if (!chunk.isEmpty()) {
+				runs.add(submitRun(chunk, charset, directory, service, chunks, runs.size()));
+			}
+		}
+		return lines;
+	}
+
+	private Future<Path> submitRun(List<String> chunk, Charset charset, Path directory, ExecutorService service,
+			Semaphore chunks, int index) throws InterruptedException {
+		chunks.acquire(); // waits while 'parallelism' chunks are still in memory
+		return service.submit(() -> {
+			try {
+				chunk.sort(comparator);
+				Path run = directory.resolve("run" + index);
+				write(chunk, run, charset);
+				return run;
+			} finally {
+				chunks.release();
+			}
+		});
+	}
+
+	private List<Path> mergePass(List<Path> files, Charset charset, Path directory, ExecutorService service)
+			throws InterruptedException, ExecutionException {
+		// Merges groups of MERGE_WIDTH runs in parallel. The groups are consecutive runs, so the sort stays stable.
+		List<Future<Path>> merged = new ArrayList<>();
+		for (int from = 0; from < files.size(); from += MERGE_WIDTH) {
+			List<Path> group = files.subList(from, Math.min(from + MERGE_WIDTH, files.size()));
+			merged.add(service.submit(() -> {
+				Path run = Files.createTempFile(directory, "merge", "");
+				merge(group, run, charset);
+				for (Path file : group) {
+					Files.delete(file);
+				}
+				return run;
+			}));
+		}
+		List<Path> result = new ArrayList<>();
+		for (Future<Path> run : merged) {
+			result.add(run.get());
+		}
+		return result;
+	}
+
+	// The current line of a run in the merge
+	private static class Cursor {
+		final BufferedReader reader;
+		final int index;
+		String line;
+
+		Cursor(BufferedReader reader, int index) {
+			this.reader = reader;
+			this.index = index;
+		}
+
+		boolean next() throws IOException {
+			line = reader.readLine();
+			return line != null;
+		}
+	}
+
+	private void merge(List<Path> runs, Path output, Charset charset) throws IOException {
+		Comparator<Cursor> order = Comparator.comparing((Cursor c) -> c.line, comparator)
+				.thenComparingInt(c -> c.index); // stable: the first run first
+		PriorityQueue<Cursor> heap = new PriorityQueue<>(Math.max(1, runs.size()), order);
+		List<BufferedReader> readers = new ArrayList<>();
+		try (BufferedWriter writer = writer(output, charset)) {
+			for (Path run : runs) {
+				BufferedReader reader = reader(run, charset);
+				readers.add(reader);
+				Cursor cursor = new Cursor(reader, readers.size());
+				if (cursor.next()) {
+					heap.add(cursor);
+				}
+			}
+			Cursor cursor;
+			while ((cursor = heap.poll()) != null) {
+				writer.write(cursor.line);
+				writer.write('\n');
+				if (cursor.next()) {
+					heap.add(cursor);
+				}
+			}
+		} finally {
+			for (BufferedReader reader : readers) {
+				reader.close();
+			}
+		}
+	}
+
+	private static void write(List<String> lines, Path run, Charset charset) throws IOException {
+		try (BufferedWriter writer = writer(run, charset)) {
+			for (String line : lines) {
+				writer.write(line);
+				writer.write('\n');
+			}
+		}
+	}
+
+	private static BufferedReader reader(Path path, Charset charset) throws IOException {
+		// one buffer of BUFFER_SIZE (Files.newBufferedReader() has its own of 8192 chars)
+		return new BufferedReader(new InputStreamReader(Files.newInputStream(path), charset.newDecoder()),
+				BUFFER_SIZE);
+	}
+
+	private static BufferedWriter writer(Path path, Charset charset) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), charset.newEncoder()),
+				BUFFER_SIZE);
+	}
+
+	private static long size(String line) {
+		// heap used by a String in the chunk: the chars, the String and the array headers, the reference
+		return 2L * line.length() + 64;
+	}
+
+	private static void deleteRuns(Path directory) {
+		// best effort: an exception here would hide the one of the sort
+		try {
+			try (DirectoryStream<Path> runs = Files.newDirectoryStream(directory)) {
+				for (Path run : runs) {
+					Files.deleteIfExists(run);
+				}
+			}
+			Files.delete(directory);
+		} catch (IOException e) {
+			// left in the temporary directory
+		}
+	}
+}
@@ -42,6 +42,8 @@ public class NIO2_Files {
 			// Handle file I/O exception...
 		}
 		
+		// ContentDeduplicator finds files with the same content and replaces them with hard links.
+		
 		// Making Directories with createDirectory() and createDirectories()
 		// To create directories in the legacy java.io API, we called mkdir() or mkdirs() on a File object. 
 		// In the NIO.2 API, we can use the Files.createDirectory(Path) method to create a directory. 
@@ -67,6 +69,8 @@ public class NIO2_Files {
 			// Handle file I/O exception...
 		}
 		
+		// TreeOperations.copyTree(), moveTree() and deleteTree() work on whole trees, in parallel.
+		
 		// Changing a File Location with move()
 		// By default, follow links, exception if the file already exists, and not perform an atomic move.
 		// While moving an empty directory across a drive is supported, 
@@ -94,6 +98,8 @@ public class NIO2_Files {
 		} catch (IOException e) {
 			// Handle file I/O exception...
 		}	
+		// AsciiFastReader.newBufferedReader(path, charset) is a drop-in replacement for US-ASCII, 
+		//   ISO-8859-1 and UTF-8: the ASCII bytes are widened to chars without the CharsetDecoder.
 		
 		try (BufferedWriter writer = Files.newBufferedWriter(path, Charset.forName("UTF-16"))) {
 			writer.write("Hello World");
@@ -102,6 +108,8 @@ public class NIO2_Files {
 		}		
 		
 		// Reading Files with readAllLines()
+		// The whole file is in memory. To sort a file bigger than the heap, ExternalSort sorts
+		//   chunks of lines into temporary files and merges them.
 		try {
 			final List<String> lines = Files.readAllLines(path);
 			for (String line : lines) {
@@ -130,6 +138,8 @@ public class NIO2_Files {
 		
 		// Managing File Modifications with getLastModifiedTime() and setLastModifiedTime()
 		// it is a lot faster to check a single file metadata attribute than to reload the entire file
+		// DirectoryIndex uses it to rescan a tree incrementally: a directory with the same
+		//   lastModifiedTime as in the saved index is not listed again.
 		// The FileTime is a simple container class that stores the date/time
 		// information about when a file was accessed, modified, or created
 		try {
@@ -140,6 +150,8 @@ public class NIO2_Files {
 		} catch (IOException e) {
 			// Handle file I/O exception...
 		}	
+		// Over many files, BulkAttributes.apply() runs these calls on a bounded thread pool
+		//   and returns the result or the error of every path.
 		
 		// Managing Ownership with getOwner() and setOwner()
 		// UserPrincipal Files.getOwner(Path) and Files.setOwner(Path, UserPrincipal)
@@ -166,6 +166,8 @@ public class NIO2_Path {
 			System.out.println(Paths.get(".").toRealPath());
 		} catch (IOException e) {
 		}				
+		// In a hot loop over the same paths, PathCache keeps the toRealPath() results for a TTL
+		//   and the normalize(), resolve() and relativize() results in bounded LRU caches.
 		
 	}
 }
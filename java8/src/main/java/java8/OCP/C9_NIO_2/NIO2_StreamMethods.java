@@ -44,6 +44,9 @@ public class NIO2_StreamMethods {
 		} catch (IOException e) {
 		}
 		
+		// Files.walk() runs on a single thread. ParallelFileWalker.walk(path) lists the subdirectories in
+		//   parallel ForkJoin tasks, with the same maxDepth, FOLLOW_LINKS and cycle detection.
+		
 		// Disregarding newDirectoryStream(). Similar behavior as Files.walk()
 		// except the DirectoryStream<Path> object that it returns does not inherit from
 		// the java.util.stream.Stream class. In other words, despite its name, it is
@@ -69,6 +72,10 @@ public class NIO2_StreamMethods {
 			// Handle file I/O exception...
 		}		
 		
+		// find() gives the attributes read by the walk to the BiPredicate. Calling Files.isDirectory(),
+		//   Files.size()... on the paths of Files.walk() reads them again. ParallelFileWalker.walkWithAttributes()
+		//   returns every path with its attributes.
+		
 		// Listing Directory Contents
 		// Although you could use the Files. walk() method with a maximum depth limit of
 		// 1 to perform this same task, the NIO.2 API includes a new stream method,
@@ -82,6 +89,9 @@ public class NIO2_StreamMethods {
 			// Handle file I/O exception...
 		}
 		
+		// TreeMirror.start(path, 100).list(path) is a cached Files.list(): a WatchService keeps
+		//   the listings of the whole tree up to date.
+		
 		// Printing File Contents
 		// NIO.2 API includes a Files.lines(Path) method that returns a Stream<String>
 		// object that preserves of the Files.readAllLines() and commented that using it
@@ -93,10 +103,17 @@ public class NIO2_StreamMethods {
 			System.out.println(Files.lines(path)
 					.filter(s -> s.startsWith("WARN "))
 					.map(s -> s.substring(5)).collect(Collectors.toList()));
+			// The same filter without decoding every line: ByteGrep.linesStartingWith(path, "WARN ")
 		} catch (IOException e) {
 			// Handle file I/O exception...
 		}
 		
+		// Files.lines() reads and decodes on a single thread, even with parallel().
+		// ChunkedLineReader.lines(path) splits the file into newline-aligned ranges decoded in parallel.
+		
+		// Files.lines() stops at the end of the file. new TailReader(path).lines(500) follows it
+		//   as it grows, like tail -F (rotation included).
+		
 		// Files.readAllLines() vs. Files.lines()
 		try {
 			Files.readAllLines(Paths.get("birds.txt")).forEach(System.out::println);
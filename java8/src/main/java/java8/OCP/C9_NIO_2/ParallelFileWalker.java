@@ -0,0 +1,206 @@
+package java8.OCP.C9_NIO_2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class ParallelFileWalker {
+	// Files.walk() and Files.find() are depth-first on a single thread: a parallel() pipeline
+	// only parallelizes the work done after each path has been found.
+	// This walker is a parallel Stream<Path> whose Spliterator really splits: every spliterator has
+	// its own queue of pending paths, and trySplit() gives half of it to another ForkJoin task,
+	// so the directories are listed in parallel and idle workers steal the pending subtrees.
+	// Same contract as Files.walk(start, maxDepth, options):
+	//    start is depth 0, directories at maxDepth are returned but not opened,
+	//    symbolic links are only followed with FOLLOW_LINKS, and then a link to an ancestor
+	//    throws an UncheckedIOException with a FileSystemLoopException (cycle detection),
+	//    an I/O error listing a directory throws an UncheckedIOException.
+	// Differences: the order is not depth-first (the stream is not ORDERED), and every
+	// directory is listed completely when it is reached.
+	// The attributes of every path are read once, during the walk. walkWithAttributes() and find()
+	// hand them to the caller, so filtering by type, size or dates does not stat the file again
+	// (Files.isDirectory(), Files.size() or Files.readAttributes() after Files.walk() do).
+
+	public static Stream<Path> walk(Path start, FileVisitOption... options) throws IOException {
+		return walk(start, Integer.MAX_VALUE, options);
+	}
+
+	public static Stream<Path> walk(Path start, int maxDepth, FileVisitOption... options) throws IOException {
+		return walkWithAttributes(start, maxDepth, options).map(Entry::getPath);
+	}
+
+	public static Stream<Entry> walkWithAttributes(Path start, FileVisitOption... options) throws IOException {
+		return walkWithAttributes(start, Integer.MAX_VALUE, options);
+	}
+
+	public static Stream<Entry> walkWithAttributes(Path start, int maxDepth, FileVisitOption... options)
+			throws IOException {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("maxDepth must be positive: " + maxDepth);
+		}
+		boolean followLinks = Arrays.asList(options).contains(FileVisitOption.FOLLOW_LINKS);
+		Entry root = new Entry(start, 0, null, attributes(start, followLinks));
+		return StreamSupport.stream(new WalkSpliterator(root, maxDepth, followLinks), true);
+	}
+
+	public static Stream<Path> find(Path start, int maxDepth, BiPredicate<Path, BasicFileAttributes> matcher,
+			FileVisitOption... options) throws IOException {
+		// Same as Files.find(), on the parallel walk
+		return walkWithAttributes(start, maxDepth, options).filter(e -> matcher.test(e.path, e.attributes))
+				.map(Entry::getPath);
+	}
+
+	static BasicFileAttributes attributes(Path path, boolean followLinks) throws IOException {
+		if (followLinks) {
+			try {
+				return Files.readAttributes(path, BasicFileAttributes.class);
+			} catch (IOException e) {
+				// broken link: return the link itself, like Files.walk()
+			}
+		}
+		return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+	}
+
+	// A path found by the walk with the attributes read during the walk.
+	// parent is the entry of its directory (for the cycle detection).
+	public static class Entry {
+		final Path path;
+		final int depth;
+		final Entry parent;
+		final BasicFileAttributes attributes;
+		boolean listed;
+
+		Entry(Path path, int depth, Entry parent, BasicFileAttributes attributes) {
+			this.path = path;
+			this.depth = depth;
+			this.parent = parent;
+			this.attributes = attributes;
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		// Read following the links only with FOLLOW_LINKS
+		public BasicFileAttributes getAttributes() {
+			return attributes;
+		}
+
+		public int getDepth() {
+			return depth;
+		}
+
+		public String toString() {
+			return path.toString();
+		}
+	}
+
+	static class WalkSpliterator implements Spliterator<Entry> {
+		private final Deque<Entry> pending;
+		private final int maxDepth;
+		private final boolean followLinks;
+
+		WalkSpliterator(Entry root, int maxDepth, boolean followLinks) {
+			this(new ArrayDeque<>(), maxDepth, followLinks);
+			pending.add(root);
+		}
+
+		private WalkSpliterator(Deque<Entry> pending, int maxDepth, boolean followLinks) {
+			this.pending = pending;
+			this.maxDepth = maxDepth;
+			this.followLinks = followLinks;
+		}
+
+		private boolean isOpenable(Entry entry) {
+			return !entry.listed && entry.attributes.isDirectory() && entry.depth < maxDepth;
+		}
+
+		private void list(Entry directory) {
+			// The children are added to the pending queue, the directory itself is still returned.
+			directory.listed = true;
+			if (followLinks) {
+				checkCycle(directory);
+			}
+			try (DirectoryStream<Path> children = Files.newDirectoryStream(directory.path)) {
+				for (Path child : children) {
+					pending.push(new Entry(child, directory.depth + 1, directory, attributes(child, followLinks)));
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void checkCycle(Entry directory) {
+			Object key = directory.attributes.fileKey();
+			for (Entry ancestor = directory.parent; ancestor != null; ancestor = ancestor.parent) {
+				Object ancestorKey = ancestor.attributes.fileKey();
+				boolean same;
+				try {
+					same = key != null && ancestorKey != null ? key.equals(ancestorKey)
+							: Files.isSameFile(directory.path, ancestor.path);
+				} catch (IOException e) {
+					same = false;
+				}
+				if (same) {
+					throw new UncheckedIOException(new FileSystemLoopException(directory.path.toString()));
+				}
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Entry> action) {
+			Entry entry = pending.poll();
+			if (entry == null) {
+				return false;
+			}
+			if (isOpenable(entry)) {
+				list(entry);
+			}
+			action.accept(entry);
+			return true;
+		}
+
+		@Override
+		public Spliterator<Entry> trySplit() {
+			// With a single pending directory (the start), list it first so there is something to split.
+			if (pending.size() == 1 && isOpenable(pending.peek())) {
+				Entry directory = pending.poll();
+				list(directory);
+				pending.addLast(directory); // listed, it will only be returned
+			}
+			int half = pending.size() / 2;
+			if (half == 0) {
+				return null;
+			}
+			Deque<Entry> split = new ArrayDeque<>(half);
+			for (int i = 0; i < half; i++) {
+				split.add(pending.pollLast()); // the oldest entries: the biggest subtrees
+			}
+			return new WalkSpliterator(split, maxDepth, followLinks);
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE; // unknown until walked
+		}
+
+		@Override
+		public int characteristics() {
+			return DISTINCT | NONNULL;
+		}
+	}
+}
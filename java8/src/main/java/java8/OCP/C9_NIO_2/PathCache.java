@@ -0,0 +1,206 @@
+package java8.OCP.C9_NIO_2;
+
+import java.io.IOException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+public class PathCache {
+	// Cache for the Path operations of a hot loop that works on the same paths again and again.
+	//    toRealPath() reads the file system every time: its results are kept for a TTL, because
+	//       a link can change. Failures (NoSuchFileException...) are not cached.
+	//    normalize(), resolve() and relativize() only work on the names, but they create new
+	//       Path objects (and parse strings) on every call: their results are kept while they
+	//       are used. resolve() and relativize() are cached per root, so the key is the
+	//       String/Path argument itself and no key object is created for a lookup.
+	//    intern() returns one shared instance for equal paths, like String.intern().
+	// Every cache is an LRU bounded by maxEntries, split in segments to reduce contention.
+
+	private static final int SEGMENTS = 16;
+
+	// LRU map bounded by maxEntries, split in synchronized segments
+	static class Lru<K, V> {
+		private final LinkedHashMap<K, V>[] segments;
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Lru(int maxEntries) {
+			int perSegment = Math.max(1, maxEntries / SEGMENTS);
+			segments = new LinkedHashMap[SEGMENTS];
+			for (int i = 0; i < SEGMENTS; i++) {
+				segments[i] = new LinkedHashMap<K, V>(16, 0.75f, true) { // access order
+					private static final long serialVersionUID = 1L;
+
+					protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+						return size() > perSegment;
+					}
+				};
+			}
+		}
+
+		private LinkedHashMap<K, V> segment(Object key) {
+			int h = key.hashCode();
+			return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+		}
+
+		V get(K key) {
+			LinkedHashMap<K, V> segment = segment(key);
+			synchronized (segment) {
+				return segment.get(key);
+			}
+		}
+
+		V computeIfAbsent(K key, Function<K, V> function) {
+			// function runs outside the lock: two threads may compute the same value
+			V value = get(key);
+			if (value == null) {
+				value = function.apply(key);
+				put(key, value);
+			}
+			return value;
+		}
+
+		void put(K key, V value) {
+			LinkedHashMap<K, V> segment = segment(key);
+			synchronized (segment) {
+				segment.put(key, value);
+			}
+		}
+
+		void remove(K key) {
+			LinkedHashMap<K, V> segment = segment(key);
+			synchronized (segment) {
+				segment.remove(key);
+			}
+		}
+
+		void clear() {
+			for (LinkedHashMap<K, V> segment : segments) {
+				synchronized (segment) {
+					segment.clear();
+				}
+			}
+		}
+	}
+
+	private static class RealPath {
+		final Path path;
+		final long expires;
+
+		RealPath(Path path, long expires) {
+			this.path = path;
+			this.expires = expires;
+		}
+	}
+
+	private static class RootCache {
+		final Lru<String, Path> resolved;
+		final Lru<Path, Path> relativized;
+
+		RootCache(int maxEntries) {
+			resolved = new Lru<>(maxEntries);
+			relativized = new Lru<>(maxEntries);
+		}
+	}
+
+	private final int maxEntries;
+	private final long ttlNanos;
+	private final Lru<Path, RealPath> realPaths;
+	private final Lru<Path, RealPath> realPathsNoFollow;
+	private final Lru<Path, Path> normalized;
+	private final Lru<Path, Path> interned;
+	private final Lru<Path, RootCache> roots;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public PathCache(int maxEntries, long realPathTtlMillis) {
+		if (maxEntries <= 0 || realPathTtlMillis < 0) {
+			throw new IllegalArgumentException("maxEntries must be positive and the TTL not negative");
+		}
+		this.maxEntries = maxEntries;
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(realPathTtlMillis);
+		this.realPaths = new Lru<>(maxEntries);
+		this.realPathsNoFollow = new Lru<>(maxEntries);
+		this.normalized = new Lru<>(maxEntries);
+		this.interned = new Lru<>(maxEntries);
+		this.roots = new Lru<>(SEGMENTS * 4);
+	}
+
+	public Path toRealPath(Path path, LinkOption... options) throws IOException {
+		boolean noFollow = Arrays.asList(options).contains(LinkOption.NOFOLLOW_LINKS);
+		Lru<Path, RealPath> cache = noFollow ? realPathsNoFollow : realPaths;
+		RealPath cached = cache.get(path);
+		long now = System.nanoTime();
+		if (cached != null && now - cached.expires < 0) {
+			hits.increment();
+			return cached.path;
+		}
+		misses.increment();
+		Path real = intern(path.toRealPath(options));
+		cache.put(path, new RealPath(real, now + ttlNanos));
+		return real;
+	}
+
+	public Path normalize(Path path) {
+		return lookup(normalized, path, p -> intern(p.normalize()));
+	}
+
+	public Path resolve(Path root, String other) {
+		return lookup(root(root).resolved, other, o -> intern(root.resolve(o)));
+	}
+
+	public Path relativize(Path root, Path other) {
+		return lookup(root(root).relativized, other, o -> intern(root.relativize(o)));
+	}
+
+	public Path intern(Path path) {
+		Path shared = interned.get(path);
+		if (shared != null) {
+			return shared;
+		}
+		interned.put(path, path);
+		return path;
+	}
+
+	public void invalidate(Path path) {
+		// e.g. after changing a link: only the cached real paths depend on the file system
+		realPaths.remove(path);
+		realPathsNoFollow.remove(path);
+	}
+
+	public void invalidateAll() {
+		realPaths.clear();
+		realPathsNoFollow.clear();
+		normalized.clear();
+		interned.clear();
+		roots.clear();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	private RootCache root(Path root) {
+		return roots.computeIfAbsent(root, r -> new RootCache(maxEntries));
+	}
+
+	private <K> Path lookup(Lru<K, Path> cache, K key, Function<K, Path> function) {
+		Path cached = cache.get(key);
+		if (cached != null) {
+			hits.increment();
+			return cached;
+		}
+		misses.increment();
+		Path value = function.apply(key);
+		cache.put(key, value);
+		return value;
+	}
+}
@@ -0,0 +1,233 @@
+package java8.OCP.C9_NIO_2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class TailReader implements Closeable {
+	// Files.lines() stops at the end of the file. This reader follows the file while it grows,
+	// like tail -F: every poll() reads only the new bytes, from the last position, with a
+	// positioned FileChannel read, and returns the complete lines (the last line is returned
+	// once its '\n' has been written).
+	// Rotation: when the fileKey of the path changes (the file was renamed and a new one created),
+	// the rest of the old file is read and the new file is followed from its beginning.
+	// A file that becomes shorter than the position (truncated in place) is read again from the start.
+	// While the path does not exist, poll() returns nothing and keeps trying; a file that appears
+	// later is read from its beginning (fromEnd only applies to a file that exists at the first poll).
+	// Needs a charset where '\n' is a single byte (UTF-8, ASCII, ISO-8859-1...).
+
+	public static final int DEFAULT_MAX_BATCH = 1000;
+
+	private final Path path;
+	private final Charset charset;
+	private final boolean fromEnd;
+	private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024); // heap: its array is scanned
+	private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+	private FileChannel channel;
+	private Object fileKey;
+	private long position;
+	private boolean polled; // fromEnd only for the first open
+	private volatile boolean closed;
+
+	public TailReader(Path path) {
+		this(path, StandardCharsets.UTF_8, true);
+	}
+
+	// fromEnd: start at the current end of the file (tail -F) or at its beginning
+	public TailReader(Path path, Charset charset, boolean fromEnd) {
+		if (!ChunkedLineReader.isNewlineSingleByte(charset)) {
+			throw new IllegalArgumentException("'\\n' is not a single byte in " + charset);
+		}
+		this.path = path;
+		this.charset = charset;
+		this.fromEnd = fromEnd;
+	}
+
+	public synchronized List<String> poll() throws IOException {
+		if (closed) {
+			throw new IOException("TailReader closed");
+		}
+		List<String> lines = new ArrayList<>();
+		if (channel == null) {
+			boolean atEnd = fromEnd && !polled;
+			polled = true;
+			if (!open(atEnd)) {
+				return lines;
+			}
+		}
+		read(lines);
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			return lines; // rotated, the new file does not exist yet: keep the old one
+		}
+		if (!Objects.equals(key(attributes), fileKey)) {
+			read(lines); // what was written to the old file before the rotation
+			if (partial.size() > 0) {
+				lines.add(decode(partial.toByteArray(), 0, partial.size()));
+			}
+			closeChannel();
+			if (open(false)) {
+				read(lines);
+			}
+		} else if (attributes.size() < position) {
+			position = 0; // truncated
+			partial.reset();
+			read(lines);
+		}
+		return lines;
+	}
+
+	public void follow(Consumer<List<String>> batches, long pollMillis) throws IOException, InterruptedException {
+		follow(batches, pollMillis, DEFAULT_MAX_BATCH);
+	}
+
+	public void follow(Consumer<List<String>> batches, long pollMillis, int maxBatch)
+			throws IOException, InterruptedException {
+		// Calls batches with up to maxBatch lines at a time until close() (from another thread)
+		while (!closed) {
+			List<String> lines;
+			try {
+				lines = poll();
+			} catch (IOException e) {
+				if (closed) {
+					return; // closed by another thread during the poll
+				}
+				throw e;
+			}
+			if (lines.isEmpty()) {
+				Thread.sleep(pollMillis);
+			}
+			for (int i = 0; i < lines.size(); i += maxBatch) {
+				batches.accept(Collections.unmodifiableList(lines.subList(i, Math.min(lines.size(), i + maxBatch))));
+			}
+		}
+	}
+
+	public Stream<String> lines(long pollMillis) {
+		// Endless sequential stream: it ends when the reader is closed (closing the stream closes it)
+		// or the thread is interrupted. An IOException is thrown as an UncheckedIOException.
+		Deque<String> queue = new ArrayDeque<>();
+		Spliterator<String> spliterator = new Spliterators.AbstractSpliterator<String>(Long.MAX_VALUE,
+				Spliterator.ORDERED | Spliterator.NONNULL) {
+			public boolean tryAdvance(Consumer<? super String> action) {
+				try {
+					while (queue.isEmpty()) {
+						if (closed) {
+							return false;
+						}
+						List<String> lines = poll();
+						if (lines.isEmpty()) {
+							Thread.sleep(pollMillis);
+						}
+						queue.addAll(lines);
+					}
+				} catch (IOException e) {
+					if (closed) {
+						return false;
+					}
+					throw new UncheckedIOException(e);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+				action.accept(queue.poll());
+				return true;
+			}
+		};
+		return StreamSupport.stream(spliterator, false).onClose(() -> {
+			try {
+				close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	private boolean open(boolean atEnd) throws IOException {
+		try {
+			channel = FileChannel.open(path, StandardOpenOption.READ);
+		} catch (NoSuchFileException e) {
+			return false;
+		}
+		fileKey = key(Files.readAttributes(path, BasicFileAttributes.class));
+		position = atEnd ? channel.size() : 0;
+		partial.reset();
+		return true;
+	}
+
+	private static Object key(BasicFileAttributes attributes) {
+		// no fileKey on some file systems (Windows): the creation time identifies the file
+		return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+	}
+
+	private void read(List<String> lines) throws IOException {
+		// Whole ranges of bytes: a line inside the buffer is decoded from it, only the start of
+		// a line cut by the end of the buffer is kept in partial.
+		byte[] bytes = buffer.array();
+		int read;
+		while ((read = channel.read(buffer, position)) > 0) {
+			position += read;
+			int end = buffer.position();
+			int start = 0;
+			for (int i = 0; i < end; i++) {
+				if (bytes[i] == '\n') {
+					if (partial.size() == 0) {
+						lines.add(decode(bytes, start, i - start));
+					} else {
+						partial.write(bytes, start, i - start);
+						lines.add(decode(partial.toByteArray(), 0, partial.size()));
+						partial.reset();
+					}
+					start = i + 1;
+				}
+			}
+			partial.write(bytes, start, end - start);
+			buffer.clear();
+		}
+	}
+
+	private String decode(byte[] bytes, int offset, int length) {
+		if (length > 0 && bytes[offset + length - 1] == '\r') {
+			length--;
+		}
+		return new String(bytes, offset, length, charset);
+	}
+
+	private void closeChannel() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		synchronized (this) {
+			closeChannel();
+		}
+	}
+}
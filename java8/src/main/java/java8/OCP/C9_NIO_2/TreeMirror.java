@@ -0,0 +1,229 @@
+package java8.OCP.C9_NIO_2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+public class TreeMirror implements Closeable {
+	// In-memory mirror of the listing of every directory of a tree, kept up to date by a WatchService.
+	// list(dir) is a cached Files.list(dir): it never touches the disk.
+	// Every directory is registered (WatchService is not recursive), new directories are
+	// registered when they appear.
+	// Coalescing: after the first event, the events of the next coalesceMillis are collected and
+	// every directory with events is listed once, however many events it had.
+	// OVERFLOW means that events were lost: only then is the whole tree scanned again.
+	// Symbolic links to directories are listed but not followed. Subdirectories that cannot be read
+	// are listed in their parent, but not mirrored.
+	// The listings are eventually consistent: a change is visible at most coalesceMillis
+	// (plus the listing time) after the WatchService reports it.
+
+	private final Path root;
+	private final long coalesceNanos;
+	private final WatchService watcher;
+	private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+	private volatile Map<Path, Set<Path>> listings = new ConcurrentHashMap<>();
+	private final AtomicLong refreshes = new AtomicLong();
+	private final AtomicLong rescans = new AtomicLong();
+	private final Thread thread;
+	private volatile boolean closed;
+
+	private TreeMirror(Path root, long coalesceMillis) throws IOException {
+		this.root = root;
+		this.coalesceNanos = TimeUnit.MILLISECONDS.toNanos(coalesceMillis);
+		this.watcher = root.getFileSystem().newWatchService();
+		this.thread = new Thread(this::run, "tree-mirror " + root);
+		this.thread.setDaemon(true);
+	}
+
+	public static TreeMirror start(Path root, long coalesceMillis) throws IOException {
+		if (!Files.isDirectory(root)) {
+			throw new NotDirectoryException(root.toString());
+		}
+		TreeMirror mirror = new TreeMirror(root, coalesceMillis);
+		try {
+			mirror.scan(root, mirror.listings);
+		} catch (IOException | RuntimeException e) {
+			mirror.watcher.close();
+			throw e;
+		}
+		mirror.thread.start();
+		return mirror;
+	}
+
+	public Path getRoot() {
+		return root;
+	}
+
+	// Empty if dir is not a directory of the tree
+	public Set<Path> children(Path dir) {
+		Set<Path> children = listings.get(dir);
+		return children == null ? Collections.emptySet() : children;
+	}
+
+	public Stream<Path> list(Path dir) {
+		return children(dir).stream();
+	}
+
+	public boolean isDirectory(Path dir) {
+		return listings.containsKey(dir);
+	}
+
+	public long getRefreshCount() { // directories listed again after events
+		return refreshes.get();
+	}
+
+	public long getRescanCount() { // full scans after OVERFLOW
+		return rescans.get();
+	}
+
+	private void scan(Path dir, Map<Path, Set<Path>> target) throws IOException {
+		// registered before listing, so nothing created during the listing is missed
+		WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_DELETE);
+		keys.put(key, dir);
+		Set<Path> children = new LinkedHashSet<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path child : stream) {
+				children.add(child);
+				if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+					scanChild(child, target);
+				}
+			}
+		} catch (IOException e) {
+			key.cancel();
+			keys.remove(key);
+			throw e;
+		}
+		target.put(dir, Collections.unmodifiableSet(children));
+	}
+
+	private void scanChild(Path dir, Map<Path, Set<Path>> target) throws IOException {
+		try {
+			scan(dir, target);
+		} catch (NoSuchFileException | NotDirectoryException e) {
+			// deleted or replaced while scanning, the parent event will fix it
+		} catch (AccessDeniedException e) {
+			// not readable: listed in its parent, but not mirrored
+		}
+	}
+
+	private void run() {
+		try {
+			while (!closed) {
+				WatchKey key = watcher.take();
+				Set<Path> dirty = new HashSet<>();
+				boolean overflow = false;
+				long deadline = System.nanoTime() + coalesceNanos;
+				while (key != null) {
+					Path dir = keys.get(key);
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							overflow = true;
+						} else if (dir != null) {
+							dirty.add(dir);
+						}
+					}
+					if (!key.reset()) {
+						// the directory is gone: forget its listing and list its parent again, or a directory
+						// created again with the same name (rm -rf build && mkdir build) would not be registered
+						keys.remove(key);
+						if (dir != null) {
+							remove(dir);
+							Path parent = dir.getParent();
+							if (!dir.equals(root) && parent != null) {
+								dirty.add(parent);
+							}
+						}
+					}
+					long remaining = deadline - System.nanoTime();
+					key = remaining > 0 ? watcher.poll(remaining, TimeUnit.NANOSECONDS) : watcher.poll();
+				}
+				if (overflow) {
+					rescan();
+				} else {
+					for (Path dir : dirty) {
+						refresh(dir);
+					}
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// closed
+		}
+	}
+
+	private void refresh(Path dir) {
+		refreshes.incrementAndGet();
+		Set<Path> old = listings.get(dir);
+		if (old == null) {
+			return; // already removed with its parent
+		}
+		Set<Path> children = new LinkedHashSet<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path child : stream) {
+				children.add(child);
+				if (!listings.containsKey(child) && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+					scanChild(child, listings);
+				}
+			}
+		} catch (NoSuchFileException | NotDirectoryException e) {
+			remove(dir);
+			return;
+		} catch (IOException e) {
+			rescan(); // cannot trust this part of the mirror any more
+			return;
+		}
+		for (Path child : old) {
+			if (!children.contains(child)) {
+				remove(child);
+			}
+		}
+		listings.put(dir, Collections.unmodifiableSet(children));
+	}
+
+	private void remove(Path dir) {
+		Set<Path> children = listings.remove(dir);
+		if (children != null) {
+			for (Path child : children) {
+				remove(child);
+			}
+		}
+	}
+
+	private void rescan() {
+		rescans.incrementAndGet();
+		Map<Path, Set<Path>> fresh = new ConcurrentHashMap<>();
+		keys.clear(); // register() returns the same key for a directory that is still watched
+		try {
+			scan(root, fresh);
+		} catch (IOException e) {
+			// the root itself is not readable: an empty mirror is better than a wrong one
+		}
+		listings = fresh;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		watcher.close(); // wakes up the thread with ClosedWatchServiceException
+	}
+}
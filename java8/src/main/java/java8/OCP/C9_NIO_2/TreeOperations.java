@@ -0,0 +1,229 @@
+package java8.OCP.C9_NIO_2;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TreeOperations {
+	// Recursive versions of Files.copy(), Files.move() and Files.delete(), which only work on a
+	// single file or an empty directory.
+	//    copyTree: the directories are created first, with the default permissions, then the files are
+	//       copied in parallel by 'parallelism' threads, with COPY_ATTRIBUTES. At the end the attributes of
+	//       the directories are copied, from the deepest one: owner, permissions (a read-only directory
+	//       can only be filled before) and times (adding the files changed them). Symbolic links are
+	//       copied as links.
+	//    moveTree: a rename if possible; across file stores (DirectoryNotEmptyException) copyTree + deleteTree.
+	//    deleteTree: files in parallel, then the directories from the deepest one.
+	// Restartable: copyTree and moveTree write every finished file to a journal (a text file).
+	// Running them again with the same journal after a crash skips the files already done.
+	// The journal is deleted when the operation completes. deleteTree is restartable without one.
+
+	private static final String COPIED = "C ";
+	private static final String DELETING = "D";
+
+	public static void copyTree(Path source, Path target, int parallelism, Path journal) throws IOException {
+		Set<String> done = readJournal(journal);
+		copyTree(source, target, parallelism, journal, done);
+		Files.deleteIfExists(journal);
+	}
+
+	public static void moveTree(Path source, Path target, int parallelism, Path journal) throws IOException {
+		Set<String> done = readJournal(journal);
+		if (done.isEmpty() && !Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+			try {
+				Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+				return;
+			} catch (AtomicMoveNotSupportedException | DirectoryNotEmptyException e) {
+				// another file store: copy and delete
+			}
+		}
+		if (!done.contains(DELETING)) {
+			copyTree(source, target, parallelism, journal, done);
+			appendJournal(journal, DELETING); // from here on, only the source is deleted
+		}
+		deleteTree(source, parallelism);
+		Files.deleteIfExists(journal);
+	}
+
+	public static void deleteTree(Path root, int parallelism) throws IOException {
+		if (!Files.exists(root, LinkOption.NOFOLLOW_LINKS)) {
+			return; // already deleted (restart)
+		}
+		List<ParallelFileWalker.Entry> entries = walk(root);
+		List<Path> files = new ArrayList<>();
+		List<ParallelFileWalker.Entry> directories = new ArrayList<>();
+		for (ParallelFileWalker.Entry entry : entries) {
+			if (entry.getAttributes().isDirectory()) {
+				directories.add(entry);
+			} else {
+				files.add(entry.getPath());
+			}
+		}
+		runInParallel(files, parallelism, Files::deleteIfExists);
+		directories.sort(Comparator.comparingInt(ParallelFileWalker.Entry::getDepth).reversed());
+		for (ParallelFileWalker.Entry directory : directories) {
+			Files.deleteIfExists(directory.getPath());
+		}
+	}
+
+	private static void copyTree(Path source, Path target, int parallelism, Path journal, Set<String> done)
+			throws IOException {
+		List<ParallelFileWalker.Entry> entries = walk(source);
+		List<ParallelFileWalker.Entry> directories = new ArrayList<>();
+		List<Path> files = new ArrayList<>();
+		for (ParallelFileWalker.Entry entry : entries) {
+			if (entry.getAttributes().isDirectory()) {
+				directories.add(entry);
+			} else if (!done.contains(COPIED + source.relativize(entry.getPath()))) {
+				files.add(entry.getPath());
+			}
+		}
+		directories.sort(Comparator.comparingInt(ParallelFileWalker.Entry::getDepth));
+		for (ParallelFileWalker.Entry directory : directories) {
+			Path copy = target.resolve(source.relativize(directory.getPath()).toString());
+			// default permissions: a read-only source directory would not accept the files
+			Files.createDirectories(copy);
+		}
+		try (BufferedWriter log = Files.newBufferedWriter(journal, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND)) {
+			runInParallel(files, parallelism, file -> {
+				String relative = source.relativize(file).toString();
+				Files.copy(file, target.resolve(relative), StandardCopyOption.COPY_ATTRIBUTES,
+						StandardCopyOption.REPLACE_EXISTING, LinkOption.NOFOLLOW_LINKS);
+				synchronized (log) {
+					log.write(COPIED + relative);
+					log.newLine();
+					log.flush(); // to the OS: survives a crash of the process
+				}
+			});
+		}
+		Collections.reverse(directories);
+		for (ParallelFileWalker.Entry directory : directories) {
+			Path copy = target.resolve(source.relativize(directory.getPath()).toString());
+			copyAttributes(directory, copy);
+		}
+	}
+
+	private static void copyAttributes(ParallelFileWalker.Entry directory, Path copy) throws IOException {
+		// Like COPY_ATTRIBUTES, once the directory is full: owner (if allowed), permissions, then the times
+		PosixFileAttributeView view = Files.getFileAttributeView(copy, PosixFileAttributeView.class,
+				LinkOption.NOFOLLOW_LINKS);
+		if (view != null) {
+			PosixFileAttributes attributes = Files.readAttributes(directory.getPath(), PosixFileAttributes.class,
+					LinkOption.NOFOLLOW_LINKS);
+			try {
+				view.setOwner(attributes.owner());
+				view.setGroup(attributes.group());
+			} catch (IOException e) {
+				// only root can give a file to another user, Files.copy() ignores it too
+			}
+			view.setPermissions(attributes.permissions());
+		}
+		BasicFileAttributes attributes = directory.getAttributes();
+		Files.getFileAttributeView(copy, BasicFileAttributeView.class, LinkOption.NOFOLLOW_LINKS)
+				.setTimes(attributes.lastModifiedTime(), attributes.lastAccessTime(), attributes.creationTime());
+	}
+
+	private static List<ParallelFileWalker.Entry> walk(Path root) throws IOException {
+		try (Stream<ParallelFileWalker.Entry> entries = ParallelFileWalker.walkWithAttributes(root)) {
+			return entries.collect(Collectors.toList());
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	@FunctionalInterface
+	interface PathAction {
+		void apply(Path path) throws IOException;
+	}
+
+	static void runInParallel(List<Path> paths, int parallelism, PathAction action) throws IOException {
+		// At most 'parallelism' operations at the same time. The first failure cancels the rest, and the
+		// exception is thrown once the running ones have finished: Files.copy() is not interruptible,
+		// and no copy or delete may go on (writing to a closed journal) after the call.
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+		}
+		ExecutorService service = Executors.newFixedThreadPool(parallelism);
+		try {
+			CompletionService<Void> completion = new ExecutorCompletionService<>(service);
+			for (Path path : paths) {
+				completion.submit(() -> {
+					action.apply(path);
+					return null;
+				});
+			}
+			for (int i = 0; i < paths.size(); i++) {
+				completion.take().get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			service.shutdownNow();
+			awaitTermination(service);
+		}
+	}
+
+	private static void awaitTermination(ExecutorService service) {
+		boolean interrupted = false;
+		for (;;) {
+			try {
+				if (service.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+					break;
+				}
+			} catch (InterruptedException e) {
+				interrupted = true; // the operations still have to end
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static Set<String> readJournal(Path journal) throws IOException {
+		if (!Files.exists(journal)) {
+			return new HashSet<>();
+		}
+		return new HashSet<>(Files.readAllLines(journal, StandardCharsets.UTF_8));
+	}
+
+	private static void appendJournal(Path journal, String line) throws IOException {
+		try (BufferedWriter log = Files.newBufferedWriter(journal, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND)) {
+			log.write(line);
+			log.newLine();
+		}
+	}
+}